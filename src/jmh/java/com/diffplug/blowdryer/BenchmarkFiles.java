@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/** Generates the inputs which the benchmarks run against, in a fresh temp folder. */
+class BenchmarkFiles {
+	private BenchmarkFiles() {}
+
+	static File tempDir() throws IOException {
+		File dir = Files.createTempDirectory("blowdryer-jmh").toFile();
+		dir.deleteOnExit();
+		return dir;
+	}
+
+	/** The content of a .properties file with the given number of entries, named key0, key1, etc. */
+	static byte[] properties(int numEntries) {
+		StringBuilder builder = new StringBuilder("# generated for benchmarks\n");
+		for (int i = 0; i < numEntries; ++i) {
+			builder.append("key").append(i).append("=some.group:some-artifact:").append(i).append(".0.0\n");
+		}
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/** A settings file whose plugins block and surrounding script have the given number of lines each. */
+	static String settingsFile(int numLines) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < numLines; ++i) {
+			builder.append("include 'project").append(i).append("'\n");
+		}
+		builder.append("plugins {\n");
+		for (int i = 0; i < numLines; ++i) {
+			builder.append("\tid 'com.example.plugin").append(i).append("' version '").append(i).append(".0.0'\n");
+		}
+		builder.append("}\n");
+		for (int i = 0; i < numLines; ++i) {
+			builder.append("rootProject.children[").append(i).append("].buildFileName = 'build.gradle'\n");
+		}
+		return builder.toString();
+	}
+
+	/** The given number of entries of the given size, named entry0.txt, entry1.txt, etc. */
+	static Map<String, byte[]> entries(int numEntries, int entryBytes) {
+		Random random = new Random(0);
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		for (int i = 0; i < numEntries; ++i) {
+			byte[] content = new byte[entryBytes];
+			// printable, so that deflate has something realistic to do
+			for (int b = 0; b < content.length; ++b) {
+				content[b] = (byte) ('a' + random.nextInt(26));
+			}
+			entries.put("entry" + i + ".txt", content);
+		}
+		return entries;
+	}
+
+	/** A jar with the given entries, either all stored or all deflated. */
+	static File jar(File dir, Map<String, byte[]> entries, boolean stored) throws IOException {
+		File jar = File.createTempFile("entries", stored ? "-stored.jar" : "-deflated.jar", dir);
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar))) {
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				byte[] content = entry.getValue();
+				ZipEntry zipEntry = new ZipEntry(entry.getKey());
+				if (stored) {
+					CRC32 crc = new CRC32();
+					crc.update(content, 0, content.length);
+					zipEntry.setMethod(ZipEntry.STORED);
+					zipEntry.setSize(content.length);
+					zipEntry.setCompressedSize(content.length);
+					zipEntry.setCrc(crc.getValue());
+				}
+				zip.putNextEntry(zipEntry);
+				zip.write(content);
+				zip.closeEntry();
+			}
+		}
+		return jar;
+	}
+
+	/** The url which {@link BlowdryerSetup#localJar(File)} uses for the root of the given jar. */
+	static String jarUrl(File jar) {
+		return "file:///" + jar.getAbsolutePath().replace('\\', '/') + "!/";
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+import okio.BufferedSink;
+import okio.HashingSource;
+import okio.Okio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Copying an entry out of a local jar into the cache, through {@link Transfers#copyHashing}, for jars with
+ * many entries. The gc profiler reports the allocation per copy, which is what moving to
+ * `FileChannel.transferFrom` was meant to bring down, and `okioCopy` is the stream copy it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DownloadLocalBenchmark {
+	@Param({"10", "1000"})
+	public int numEntries;
+
+	@Param({"1024", "65536"})
+	public int entryBytes;
+
+	@Param({"false", "true"})
+	public boolean stored;
+
+	File jar;
+	String root;
+	File dst;
+	int next;
+
+	@Setup
+	public void setup() throws IOException {
+		File dir = BenchmarkFiles.tempDir();
+		jar = BenchmarkFiles.jar(dir, BenchmarkFiles.entries(numEntries, entryBytes), stored);
+		root = BenchmarkFiles.jarUrl(jar);
+		dst = new File(dir, "dst");
+	}
+
+	@Benchmark
+	public String downloadLocal() throws IOException, URISyntaxException {
+		// a different entry each time, spread across the whole jar
+		next = (next + 1) % numEntries;
+		return Blowdryer.downloadLocal(root + "entry" + next + ".txt", dst);
+	}
+
+	@Benchmark
+	public String okioCopy() throws IOException {
+		next = (next + 1) % numEntries;
+		String filename = "entry" + next + ".txt";
+		return LocalJars.read(jar, zip -> {
+			try (HashingSource hashing = HashingSource.sha256(Okio.source(zip.getInputStream(zip.getEntry(filename))));
+					BufferedSink sink = Okio.buffer(Okio.sink(dst))) {
+				sink.writeAll(hashing);
+				return hashing.hash().hex();
+			}
+		});
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** {@link Blowdryer#filenameSafe(String)} runs two regexes per call, plus murmur3 and Base64 for long urls. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FilenameSafeBenchmark {
+	@Param({
+			"https://raw.githubusercontent.com/diffplug/blowdryer/1.0/a.gradle",
+			"https://gitlab.com/api/v4/projects/diffplug%2Fblowdryer-diffplug/repository/files/src%2Fmain%2Fresources%2Fspotless%2Fjava.gradle/raw?ref=7ae4ef6aa2ec1e6e0e0a3e1d4a37a7c0d4f6b9a1"
+	})
+	public String url;
+
+	@Benchmark
+	public String filenameSafe() {
+		return Blowdryer.filenameSafe(url);
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Parsing and regenerating a settings file with `setPluginsBlockTo`, which happens on every build. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PluginsBlockParsedBenchmark {
+	@Param({"10", "1000"})
+	public int numLines;
+
+	@Param({"false", "true"})
+	public boolean windowsNewlines;
+
+	String settingsFile;
+
+	@Setup
+	public void setup() {
+		String unix = BenchmarkFiles.settingsFile(numLines);
+		settingsFile = windowsNewlines ? unix.replace("\n", "\r\n") : unix;
+	}
+
+	@Benchmark
+	public String parseAndRegenerate() {
+		PluginsBlockParsed parsed = new PluginsBlockParsed(settingsFile);
+		parsed.setPluginContent(parsed.inPluginsUnix());
+		return parsed.contentCorrectEndings();
+	}
+}
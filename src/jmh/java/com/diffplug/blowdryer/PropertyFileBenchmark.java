@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Opening a large .properties file the first time a daemon uses it: parsing it with {@link java.util.Properties},
+ * compiling its {@link PropsIndex}, and opening the index which an earlier daemon compiled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PropertyFileBenchmark {
+	@Param({"100", "10000"})
+	public int numEntries;
+
+	File propertiesFile;
+
+	@Setup
+	public void setup() throws IOException {
+		propertiesFile = new File(BenchmarkFiles.tempDir(), "big.properties");
+		Files.write(propertiesFile.toPath(), BenchmarkFiles.properties(numEntries));
+		// compiles the index, so that indexOpen measures only the open
+		PropsIndex.of(propertiesFile);
+	}
+
+	@Benchmark
+	public Map<String, String> loadPropertyFile() {
+		return Blowdryer.loadPropertyFile(propertiesFile);
+	}
+
+	@Benchmark
+	public byte[] indexCompile() throws IOException {
+		return PropsIndex.compile(propertiesFile);
+	}
+
+	@Benchmark
+	public String indexOpenAndGet() {
+		return PropsIndex.of(propertiesFile).get("key" + (numEntries / 2));
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * The paths which every build script hits over and over once the cache is warm: {@link Blowdryer#immutableUrl(String)}
+ * for a url which this build already resolved, and {@link Blowdryer#prop(String, String)} from many threads at once,
+ * as in a parallel configuration of a large multi-project build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WarmCacheBenchmark {
+	private static final int THREADS = 8;
+
+	String url;
+
+	@Setup
+	public void setup() throws IOException {
+		Blowdryer.initTempDir(System.getProperty("java.io.tmpdir"));
+		Map<String, byte[]> entries = BenchmarkFiles.entries(1, 1024);
+		entries.put("big.properties", BenchmarkFiles.properties(100));
+		String root = BenchmarkFiles.jarUrl(BenchmarkFiles.jar(BenchmarkFiles.tempDir(), entries, false));
+		url = root + "entry0.txt";
+		Blowdryer.setResourcePluginNull();
+		Blowdryer.setResourcePlugin(resource -> root + resource);
+		// the first call of each resolves from the jar, the benchmarks only measure the calls after that
+		Blowdryer.immutableUrl(url);
+		Blowdryer.prop("big", "key50");
+	}
+
+	@TearDown
+	public void tearDown() {
+		Blowdryer.setResourcePluginNull();
+	}
+
+	@Benchmark
+	public File immutableUrlHit() {
+		return Blowdryer.immutableUrl(url);
+	}
+
+	@Benchmark
+	@Threads(THREADS)
+	public String propContended() throws IOException {
+		return Blowdryer.prop("big", "key50");
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+
+import javax.annotation.Nullable;
+
+/**
+ * A resource inside a zip archive of a whole repo, in the form `archive:<archiveUrl>!/<folder>!/<resource>`.
+ *
+ * Every resource under the same `archive:<archiveUrl>!/<folder>!/` root comes from a single download
+ * of the archive, which gets extracted into the cache all at once. If the folder starts with `*`, then
+ * the archive has a single top-level folder with an unpredictable name (e.g. `acme-blowdryer-acme-07f588e`),
+ * and it gets skipped.
+ */
+class ArchiveUrl {
+	static final String PROTOCOL = "archive:";
+	private static final String SEPARATOR = "!/";
+	private static final String ANY_TOP_LEVEL = "*";
+
+	final String archiveUrl, folder, resource;
+
+	private ArchiveUrl(String archiveUrl, String folder, String resource) {
+		this.archiveUrl = archiveUrl;
+		this.folder = folder;
+		this.resource = resource;
+	}
+
+	static boolean isArchive(String url) {
+		return url.startsWith(PROTOCOL);
+	}
+
+	/** Returns the url of the given resource within folder of the given archive, skipping its top-level folder if there is one. */
+	static String of(String archiveUrl, boolean hasTopLevelFolder, String folder, String resource) {
+		String folderSpec = hasTopLevelFolder ? (folder.isEmpty() ? ANY_TOP_LEVEL : ANY_TOP_LEVEL + "/" + folder) : folder;
+		return PROTOCOL + archiveUrl + SEPARATOR + folderSpec + SEPARATOR + resource;
+	}
+
+	static ArchiveUrl parse(String url) {
+		if (!isArchive(url)) {
+			throw new IllegalArgumentException("Expected " + PROTOCOL + " url, was " + url);
+		}
+		String[] parts = url.substring(PROTOCOL.length()).split(SEPARATOR, 3);
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("Expected " + PROTOCOL + "<archiveUrl>!/<folder>!/<resource>, was " + url);
+		}
+		return new ArchiveUrl(parts[0], parts[1], parts[2]);
+	}
+
+	/** Everything which this resource shares with the other resources from the same extraction. */
+	String root() {
+		return PROTOCOL + archiveUrl + SEPARATOR + folder + SEPARATOR;
+	}
+
+	/** Returns the path of the given archive entry relative to {@link #folder}, or null if it's outside of that folder. */
+	@Nullable
+	String relativize(String entryName) {
+		String path = entryName;
+		String subfolder = folder;
+		if (folder.equals(ANY_TOP_LEVEL) || folder.startsWith(ANY_TOP_LEVEL + "/")) {
+			int firstSlash = path.indexOf('/');
+			if (firstSlash == -1) {
+				return null;
+			}
+			path = path.substring(firstSlash + 1);
+			subfolder = folder.substring(Math.min(folder.length(), ANY_TOP_LEVEL.length() + 1));
+		}
+		if (subfolder.isEmpty()) {
+			return path;
+		}
+		return path.startsWith(subfolder + "/") ? path.substring(subfolder.length() + 1) : null;
+	}
+}
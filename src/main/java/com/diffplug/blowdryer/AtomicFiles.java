@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+
+/**
+ * The cache is shared by every Gradle daemon on the machine, so every write
+ * goes to a temp file first and is then renamed into place, and downloads are
+ * coordinated with file locks.
+ */
+class AtomicFiles {
+	private AtomicFiles() {}
+
+	/** Moves src onto dst, so that readers of dst see either its old content or all of src, never a mix. */
+	static void move(File src, File dst) throws IOException {
+		try {
+			Files.move(src.toPath(), dst.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(src.toPath(), dst.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/** Writes the given content to dst by way of a temp file in the same folder. */
+	static void write(File dst, byte[] content) throws IOException {
+		Files.createDirectories(dst.getParentFile().toPath());
+		File temp = File.createTempFile(dst.getName(), ".tmp", dst.getParentFile());
+		try {
+			Files.write(temp.toPath(), content);
+			move(temp, dst);
+		} finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	/** Copies src to dst by way of a temp file in the same folder as dst. */
+	static void copy(File src, File dst) throws IOException {
+		Files.createDirectories(dst.getParentFile().toPath());
+		File temp = File.createTempFile(dst.getName(), ".tmp", dst.getParentFile());
+		try {
+			Files.copy(src.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			move(temp, dst);
+		} finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+
+	/**
+	 * Calls the given callable while holding an exclusive lock on the given file,
+	 * blocking until every other process (or thread) holding it lets go.
+	 *
+	 * Within a single JVM, two threads must never try to lock the same file at the same time.
+	 */
+	static <T> T locked(File lockFile, Callable<T> callable) throws Exception {
+		Files.createDirectories(lockFile.getParentFile().toPath());
+		try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				FileLock lock = channel.lock()) {
+			return callable.call();
+		}
+	}
+
+	/** Calls the given callable if the lock is available right now, and returns false without calling it if it isn't. */
+	static boolean tryLocked(File lockFile, Callable<?> callable) throws Exception {
+		Files.createDirectories(lockFile.getParentFile().toPath());
+		try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				FileLock lock = channel.tryLock()) {
+			if (lock == null) {
+				return false;
+			}
+			callable.call();
+			return true;
+		}
+	}
+}
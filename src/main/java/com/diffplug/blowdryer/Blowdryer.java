@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2019-2022 DiffPlug
+ * Copyright (C) 2019-2026 DiffPlug
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,29 +24,44 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.Date;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import javax.annotation.Nullable;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
-import okio.BufferedSink;
-import okio.Okio;
 import org.gradle.api.Project;
+import org.gradle.api.provider.ProviderFactory;
 
 /**
  * Public static methods which retrieve resources as
@@ -70,24 +85,171 @@ public class Blowdryer {
 
 	static File cacheDir() {
 		Preconditions.checkArgument(cacheTempDir != null, "Call initTempDir first");
-		return new File(cacheTempDir, "blowdryer-cache");
+		return new File(cacheTempDir, CACHE_DIR);
 	}
 
+	private static final String CACHE_DIR = "blowdryer-cache";
+
 	private static File cacheTempDir;
-	private static final Map<String, File> urlToContent = new HashMap<>();
-	private static final Map<File, Map<String, String>> fileToProps = new HashMap<>();
+	private static final Map<String, File> urlToContent = new ConcurrentHashMap<>();
+	private static final Map<File, Map<String, String>> fileToProps = new ConcurrentHashMap<>();
+	/** When this daemon last touched each cached file, so that a warm build only touches the ones which have gone stale. */
+	private static final Map<File, Long> lastTouched = new ConcurrentHashMap<>();
+	/** One prefetch manifest per repo for the life of the daemon, so that it's only read from disk once. */
+	private static final Map<File, PrefetchManifest> prefetchManifests = new ConcurrentHashMap<>();
+	/** The {@link ContentStore#generation()} at the start of the previous build, see {@link #revalidateWarmCache()}. */
+	private static volatile @Nullable String warmGeneration;
+	private static final SingleFlight<String, File> cacheKeyInFlight = new SingleFlight<>();
+	private static final SingleFlight<String, String> urlInFlight = new SingleFlight<>();
+	private static final SingleFlight<String, Void> archiveInFlight = new SingleFlight<>();
+	/** Only one thread in this JVM can hold a url's lock file at a time, whether it's in the foreground or revalidating in the background. */
+	private static final Map<String, Object> urlLocks = new ConcurrentHashMap<>();
 
 	static void wipeEntireCache() {
 		synchronized (Blowdryer.class) {
+			urlToContent.clear();
+			fileToProps.clear();
+			lastTouched.clear();
+			prefetchManifests.clear();
+			warmGeneration = null;
+			for (BuildState build : activeBuilds()) {
+				build.resourceToProps.clear();
+				build.verified.clear();
+			}
+			// other daemons might be using the cache right now, so we move it out of the way in a single
+			// atomic step, and they'll see either the whole old cache or an empty one, never half of one
+			File cacheDir = cacheDir();
+			File[] toDelete = cacheTempDir.listFiles((dir, name) -> name.startsWith(CACHE_DIR + WIPED));
+			if (cacheDir.exists()) {
+				File wiped = new File(cacheTempDir, CACHE_DIR + WIPED + UUID.randomUUID());
+				try {
+					AtomicFiles.move(cacheDir, wiped);
+					deleteRecursively(wiped);
+				} catch (IOException e) {
+					// Windows won't move a folder with open files, so delete in place whatever isn't in use
+					deleteRecursively(cacheDir);
+				}
+			}
+			if (toDelete != null) {
+				for (File previouslyWiped : toDelete) {
+					deleteRecursively(previouslyWiped);
+				}
+			}
+			// other threads might hold these right now, so they're emptied in place rather than replaced,
+			// which keeps a single instance (and so a single lock holder) per file in this JVM
+			CacheIndex index = Blowdryer.index;
+			if (index != null) {
+				index.refresh();
+			}
+			CacheIndex refs = Blowdryer.refs;
+			if (refs != null) {
+				refs.refresh();
+			}
+		}
+	}
+
+	private static final String WIPED = "-wiped-";
+
+	/**
+	 * Removes every url which matches the given filter from the cache, along with any blob that no remaining url uses,
+	 * and returns the urls which were removed. If dryRun is true, it only returns them.
+	 */
+	static List<String> wipeCache(BiPredicate<String, Map<String, String>> filter, boolean dryRun) {
+		synchronized (Blowdryer.class) {
+			CacheIndex index = index();
+			index.refresh();
+			List<String> wiped = new ArrayList<>();
+			Set<String> stillUsed = new HashSet<>();
+			Set<String> candidates = new HashSet<>();
+			for (Map.Entry<String, Map<String, String>> entry : index.entries().entrySet()) {
+				String sha256 = entry.getValue().get(CacheIndex.SHA256);
+				if (sha256 == null) {
+					// the root of an archive, which goes along with any of its files
+					continue;
+				} else if (filter.test(entry.getKey(), entry.getValue())) {
+					wiped.add(entry.getKey());
+					candidates.add(sha256);
+				} else {
+					stillUsed.add(sha256);
+				}
+			}
+			if (dryRun || wiped.isEmpty()) {
+				return wiped;
+			}
+			Set<String> wipedUrls = new HashSet<>(wiped);
+			index.removeAll(wiped);
+			urlToContent.entrySet().removeIf(entry -> {
+				if (wipedUrls.contains(urlOfCacheKey(entry.getKey()))) {
+					fileToProps.remove(entry.getValue());
+					lastTouched.remove(entry.getValue());
+					for (BuildState build : activeBuilds()) {
+						build.verified.remove(entry.getKey());
+					}
+					return true;
+				} else {
+					return false;
+				}
+			});
+			for (BuildState build : activeBuilds()) {
+				build.resourceToProps.clear();
+			}
+			ContentStore store = new ContentStore(cacheDir());
+			for (String sha256 : candidates) {
+				if (!stillUsed.contains(sha256)) {
+					deleteRecursively(store.filesDir(sha256));
+					try {
+						store.deleteBlob(sha256);
+					} catch (IOException e) {
+						System.err.println("Blowdryer could not delete " + store.blob(sha256) + ", it's probably in use by another process: " + e);
+					}
+				}
+			}
 			try {
-				urlToContent.clear();
-				fileToProps.clear();
-				java.nio.file.Files.walk(cacheDir().toPath())
-						.sorted(Comparator.reverseOrder())
-						.forEach(Errors.rethrow().wrap((Path path) -> java.nio.file.Files.delete(path)));
+				store.bumpGeneration();
 			} catch (IOException e) {
 				throw Errors.asRuntime(e);
 			}
+			return wiped;
+		}
+	}
+
+	/** Forgets every tag -> commit resolution which matches the given filter, and returns the urls which had resolved them. */
+	static List<String> forgetTags(BiPredicate<String, Map<String, String>> filter) {
+		synchronized (Blowdryer.class) {
+			CacheIndex refs = refs();
+			refs.refresh();
+			List<String> forgotten = new ArrayList<>();
+			for (Map.Entry<String, Map<String, String>> entry : refs.entries().entrySet()) {
+				if (filter.test(entry.getKey(), entry.getValue())) {
+					refs.remove(entry.getKey());
+					forgotten.add(entry.getKey());
+				}
+			}
+			refs.compact();
+			return forgotten;
+		}
+	}
+
+	private static String urlOfCacheKey(String cacheKey) {
+		int suffixStart = cacheKey.indexOf('|');
+		return suffixStart == -1 ? cacheKey : cacheKey.substring(0, suffixStart);
+	}
+
+	/** Deletes everything it can, and warns about files which are still in use by another process. */
+	private static void deleteRecursively(File root) {
+		if (!root.exists()) {
+			return;
+		}
+		try (Stream<Path> paths = java.nio.file.Files.walk(root.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+				try {
+					java.nio.file.Files.delete(path);
+				} catch (IOException e) {
+					System.err.println("Blowdryer could not delete " + path + ", it's probably in use by another process: " + e);
+				}
+			});
+		} catch (IOException e) {
+			throw Errors.asRuntime(e);
 		}
 	}
 
@@ -109,81 +271,573 @@ public class Blowdryer {
 	 * with that string.
 	 */
 	public static File immutableUrl(String url, @Nullable String requiredSuffix) {
-		synchronized (Blowdryer.class) {
-			String cacheKey = requiredSuffix == null ? url : url + "|" + requiredSuffix; // | is illegal in URLs
-			File result = urlToContent.get(cacheKey);
-			if (result != null && result.isFile()) {
+		return immutableUrl(current(), url, requiredSuffix);
+	}
+
+	static File immutableUrl(BuildState build, String url, @Nullable String requiredSuffix) {
+		return immutableUrl(build, url, requiredSuffix, Collections.emptyMap(), NEVER_REVALIDATE);
+	}
+
+	/** Used in place of a revalidation interval for the urls whose content never changes. */
+	static final long NEVER_REVALIDATE = -1;
+
+	/**
+	 * The source attributes are recorded in the index if this call is what downloads the url. Unless revalidateMs is
+	 * {@link #NEVER_REVALIDATE}, the url's content can change. Once it's older than that, this still returns the cached
+	 * copy right away, and revalidates it in the background for the next build.
+	 */
+	private static File immutableUrl(BuildState build, String url, @Nullable String requiredSuffix, Map<String, String> source, long revalidateMs) {
+		long start = System.nanoTime();
+		String cacheKey = requiredSuffix == null ? url : url + "|" + requiredSuffix; // | is illegal in URLs
+		File result = urlToContent.get(cacheKey);
+		if (result != null) {
+			if (build.verified.contains(cacheKey)) {
+				build.metrics.resolved(url, BlowdryerListener.Source.MEMORY, System.nanoTime() - start);
+				return result;
+			} else if ((revalidateMs == NEVER_REVALIDATE || isCurrentContent(result, index().get(url))) && (build.warm ? touchIfStale(build, result) : touch(build, result))) {
+				revalidateInBackgroundIfStale(build, url, source, revalidateMs);
+				build.verified.add(cacheKey);
+				build.metrics.resolved(url, BlowdryerListener.Source.MEMORY, System.nanoTime() - start);
 				return result;
 			}
-
-			String safe = filenameSafe(url);
-			if (requiredSuffix != null && !safe.endsWith(requiredSuffix)) {
-				safe = safe + requiredSuffix;
+		}
+		if (build.offline && needsNetwork(url) && cachedOrNull(url, requiredSuffix) == null) {
+			throw offlineMisses(build, url);
+		}
+		BlowdryerListener.Source foundIn = index().get(url) == null ? BlowdryerListener.Source.DOWNLOAD : BlowdryerListener.Source.DISK;
+		File resolved = cacheKeyInFlight.get(cacheKey, () -> {
+			String name = cachedName(url, requiredSuffix);
+			ContentStore store = new ContentStore(cacheDir(), build.compressMinBytes);
+			// the url -> sha256 entry is shared by every requiredSuffix of the same url
+			String sha256 = urlInFlight.get(url, () -> sha256ForUrl(url, build, source, store, revalidateMs, null));
+			build.pinned.add(sha256);
+			File materialized;
+			try {
+				materialized = store.materialize(sha256, name);
+			} catch (NoSuchFileException e) {
+				// the index is trusted without a stat, so this is where we find out that its blob is gone
+				String missing = sha256;
+				sha256 = urlInFlight.get(url, () -> sha256ForUrl(url, build, source, store, revalidateMs, missing));
+				build.pinned.add(sha256);
+				materialized = store.materialize(sha256, name);
 			}
-			File metaFile = new File(cacheDir(), "meta_" + safe + ".properties");
-			File dataFile = new File(cacheDir(), safe);
+			touch(build, materialized);
+			urlToContent.put(cacheKey, materialized);
+			build.verified.add(cacheKey);
+			return materialized;
+		});
+		revalidateInBackgroundIfStale(build, url, source, revalidateMs);
+		build.metrics.resolved(url, foundIn, System.nanoTime() - start);
+		return resolved;
+	}
+
+	/** True if the given materialized file has the content which the index has for its url right now. */
+	private static boolean isCurrentContent(File materialized, @Nullable Map<String, String> entry) {
+		return entry != null && materialized.getParentFile().getName().equals(entry.get(CacheIndex.SHA256));
+	}
 
+	/**
+	 * The revalidations which are running in the background right now, at most one per url. They're kept apart from
+	 * {@link #urlInFlight}, so that a build which needs the url's content never waits on (or shares) a revalidation.
+	 */
+	private static final Map<String, CompletableFuture<Void>> revalidating = new ConcurrentHashMap<>();
+
+	/**
+	 * Revalidates the given url on a background thread if it's due, so that the next build gets whatever the server
+	 * has now. If that fails, e.g. because the host is down or rate-limiting us, builds keep using the copy they have.
+	 * A url which this build already fetched is as fresh as it gets, so it's skipped.
+	 */
+	private static void revalidateInBackgroundIfStale(BuildState build, String url, Map<String, String> source, long revalidateMs) {
+		if (revalidateMs == NEVER_REVALIDATE || build.fetched.contains(url) || isFresh(build, index().get(url), revalidateMs)) {
+			return;
+		}
+		CompletableFuture<Void> done = new CompletableFuture<>();
+		if (revalidating.putIfAbsent(url, done) != null) {
+			return;
+		}
+		FetchExecutor.executor().execute(() -> {
 			try {
-				if (metaFile.exists() && dataFile.exists()) {
-					Map<String, String> props = loadPropertyFile(metaFile);
-					String propUrl = props.get(PROP_URL);
-					if (propUrl == null) {
-						throw new IllegalArgumentException("Unexpected content, recommend deleting file at " + metaFile);
-					}
-					if (propUrl.equals(url)) {
-						urlToContent.put(cacheKey, dataFile);
-						return dataFile;
-					} else {
-						throw new IllegalStateException("Expected url " + url + " but was " + propUrl + ", recommend deleting file at " + metaFile.getAbsolutePath());
-					}
-				} else {
-					if (metaFile.exists()) {
-						metaFile.delete();
+				sha256ForUrlLocked(url, build, source, new ContentStore(cacheDir(), build.compressMinBytes), revalidateMs, null);
+			} catch (Exception e) {
+				System.err.println("Blowdryer couldn't revalidate " + url + ", so it will keep using the cached copy: " + e);
+			} finally {
+				revalidating.remove(url, done);
+				done.complete(null);
+			}
+		});
+	}
+
+	/** Waits for every revalidation which is running in the background, for tests. */
+	static void awaitRevalidations() {
+		CompletableFuture.allOf(revalidating.values().toArray(new CompletableFuture[0])).join();
+	}
+
+	private static boolean needsNetwork(String url) {
+		if (ArchiveUrl.isArchive(url)) {
+			url = ArchiveUrl.parse(url).archiveUrl;
+		}
+		return !url.startsWith(FILE_PROTOCOL);
+	}
+
+	/**
+	 * An offline build fails on its first missing resource, so this lists every resource which earlier
+	 * builds used and which isn't cached either, so that they can all be fixed in one go.
+	 */
+	private static IllegalStateException offlineMisses(BuildState build, String url) {
+		Set<String> missing = new LinkedHashSet<>();
+		missing.add(url);
+		ResourcePlugin plugin = build.plugin;
+		PrefetchManifest manifest = build.prefetchManifest;
+		if (plugin != null && manifest != null) {
+			List<String> resources = manifest.resources();
+			Collections.sort(resources);
+			for (String resource : resources) {
+				try {
+					String other = plugin.toImmutableUrl(resource);
+					if (needsNetwork(other) && cachedOrNull(other, extensionOf(resource)) == null) {
+						missing.add(other);
 					}
-					if (dataFile.exists()) {
-						dataFile.delete();
+				} catch (RuntimeException e) {
+					missing.add(resource + " (" + e.getMessage() + ")");
+				}
+			}
+		}
+		StringBuilder message = new StringBuilder();
+		message.append("Blowdryer is offline, and " + missing.size() + " resource(s) are missing from " + cacheDir() + ":");
+		for (String resource : missing) {
+			message.append("\n  - ").append(resource);
+		}
+		message.append("\nRun the build once without --offline (or -P" + BlowdryerSetupPlugin.OFFLINE_PROPERTY + "=true) to cache them.");
+		return new IllegalStateException(message.toString());
+	}
+
+	/** Throws if the given build is offline, for anything which would otherwise make a request. */
+	static void assertOnline(BuildState build, String request) {
+		if (build.offline) {
+			throw new IllegalStateException("Blowdryer is offline, so it can't request " + request);
+		}
+	}
+
+	private static String cachedName(String url, @Nullable String requiredSuffix) {
+		String safe = filenameSafe(url);
+		return requiredSuffix == null || safe.endsWith(requiredSuffix) ? safe : safe + requiredSuffix;
+	}
+
+	/**
+	 * Returns the given sha256 if it's still what the url resolves to and its content is on disk, else null, without any
+	 * network or locks. Also null once the url is due for revalidation, counting from resolvedAt if that's later than
+	 * its last validation, since the build which resolved a stale copy also revalidated it in the background.
+	 */
+	static @Nullable String currentSha256OrNull(String url, @Nullable String requiredSuffix, String sha256, long revalidateMs, long resolvedAt) {
+		if (revalidateMs != NEVER_REVALIDATE && System.currentTimeMillis() - resolvedAt >= revalidateMs && !isFresh(null, index().get(url), revalidateMs)) {
+			// maybe another process revalidated it since we last read the index
+			index().refresh();
+			if (!isFresh(null, index().get(url), revalidateMs)) {
+				return null;
+			}
+		}
+		Map<String, String> entry = index().get(url);
+		if (entry == null || !sha256.equals(entry.get(CacheIndex.SHA256))) {
+			return null;
+		}
+		return materializedOrNull(sha256, cachedName(url, requiredSuffix)) != null ? sha256 : null;
+	}
+
+	/** Returns the cached file for the given url if its content is already on disk, else null, without any network or locks. */
+	static @Nullable File cachedOrNull(String url, @Nullable String requiredSuffix) {
+		String cacheKey = requiredSuffix == null ? url : url + "|" + requiredSuffix;
+		File result = urlToContent.get(cacheKey);
+		if (result != null && result.isFile()) {
+			return result;
+		}
+		Map<String, String> entry = index().get(url);
+		if (entry == null) {
+			return null;
+		}
+		return materializedOrNull(entry.get(CacheIndex.SHA256), cachedName(url, requiredSuffix));
+	}
+
+	private static @Nullable File materializedOrNull(String sha256, String name) {
+		ContentStore store = new ContentStore(cacheDir());
+		File materialized = new File(store.filesDir(sha256), name);
+		if (materialized.isFile()) {
+			return materialized;
+		} else if (store.contains(sha256)) {
+			try {
+				return store.materialize(sha256, name);
+			} catch (IOException e) {
+				return null;
+			}
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Marks the given cached file as used by this build, for the sake of LRU eviction, and
+	 * returns false if it doesn't exist. It's a hardlink to its blob, so this touches both.
+	 */
+	private static boolean touch(BuildState build, File cached) {
+		long now = System.currentTimeMillis();
+		if (cached.setLastModified(now)) {
+			// files/<sha256>/<name>
+			build.pinned.add(cached.getParentFile().getName());
+			lastTouched.put(cached, now);
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private static final long TOUCH_INTERVAL_MS = TimeUnit.MINUTES.toMillis(10);
+
+	/**
+	 * In a warm build nothing has been deleted since the previous one, so the file is trusted to exist without
+	 * a syscall, and its mtime is only refreshed if this daemon hasn't done so recently.
+	 */
+	private static boolean touchIfStale(BuildState build, File cached) {
+		build.pinned.add(cached.getParentFile().getName());
+		Long touched = lastTouched.get(cached);
+		if (touched == null || System.currentTimeMillis() - touched > TOUCH_INTERVAL_MS) {
+			return touch(build, cached);
+		} else {
+			return true;
+		}
+	}
+
+	/**
+	 * Returns true if nothing has been deleted from the cache (by any process) since the previous build in this
+	 * daemon, in which case every file the daemon remembers is still there. Costs one small read per build.
+	 */
+	private static boolean revalidateWarmCache() {
+		try {
+			String generation = new ContentStore(cacheDir()).generation();
+			boolean warm = generation.equals(warmGeneration);
+			warmGeneration = generation;
+			return warm;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/** Forgets everything this daemon remembers about the given content, which garbage collection just deleted. */
+	private static void forgetContent(Set<String> sha256s) {
+		urlToContent.entrySet().removeIf(entry -> {
+			if (sha256s.contains(entry.getValue().getParentFile().getName())) {
+				fileToProps.remove(entry.getValue());
+				lastTouched.remove(entry.getValue());
+				for (BuildState build : activeBuilds()) {
+					build.verified.remove(entry.getKey());
+				}
+				return true;
+			} else {
+				return false;
+			}
+		});
+		for (BuildState build : activeBuilds()) {
+			build.resourceToProps.clear();
+		}
+	}
+
+	/** Evicts least-recently-used content on a background thread, at most once a day per machine. */
+	static void collectGarbageInBackground(long maxBytes, long maxAgeMs) {
+		new CacheGc(cacheDir(), index(), maxBytes, maxAgeMs, sha256 -> activeBuilds().stream().anyMatch(build -> build.pinned.contains(sha256)), Blowdryer::forgetContent).maybeStartInBackground();
+	}
+
+	private static volatile @Nullable CacheIndex index;
+
+	/** The index of every url in the cache, loaded once per JVM. */
+	static CacheIndex index() {
+		CacheIndex result = index;
+		if (result == null) {
+			synchronized (Blowdryer.class) {
+				result = index;
+				if (result == null) {
+					result = new CacheIndex(new File(cacheDir(), "index.bin"));
+					index = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static volatile @Nullable CacheIndex refs;
+
+	/** Every tag which has been resolved into a commit, keyed by the url which resolved it, and so by host, repo, and tag. */
+	static CacheIndex refs() {
+		CacheIndex result = refs;
+		if (result == null) {
+			synchronized (Blowdryer.class) {
+				result = refs;
+				if (result == null) {
+					result = new CacheIndex(new File(cacheDir(), "refs.bin"));
+					refs = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the commit which a tag points to, as resolved by any earlier build on this machine, or else
+	 * resolves it and remembers the result. Tags are trusted not to move, a repo which re-tags needs
+	 * {@link BlowdryerPlugin#REFRESH_TAGS_TASK}.
+	 */
+	static String resolveTag(String url, String repo, String tag, Supplier<String> resolve) {
+		CacheIndex refs = refs();
+		// another daemon might have resolved or forgotten it since we last looked
+		refs.refresh();
+		Map<String, String> entry = refs.get(url);
+		if (entry != null && entry.containsKey(CacheIndex.COMMIT)) {
+			return entry.get(CacheIndex.COMMIT);
+		}
+		String commit = resolve.get();
+		Map<String, String> attributes = new LinkedHashMap<>();
+		attributes.put(CacheIndex.COMMIT, commit);
+		attributes.put(CacheIndex.REPO, repo);
+		attributes.put(CacheIndex.ANCHOR, tag);
+		attributes.put(CacheIndex.DOWNLOADED_AT, Long.toString(System.currentTimeMillis()));
+		refs.put(url, attributes);
+		return commit;
+	}
+
+	/**
+	 * Returns true if the given index entry can be used without asking the server whether it has changed,
+	 * which is always for an immutable url, and always in an offline build (if there is a build).
+	 */
+	private static boolean isFresh(@Nullable BuildState build, @Nullable Map<String, String> entry, long revalidateMs) {
+		if (revalidateMs == NEVER_REVALIDATE || (build != null && build.offline)) {
+			return true;
+		}
+		String validatedAt = entry == null ? null : entry.get(CacheIndex.VALIDATED_AT);
+		return validatedAt != null && System.currentTimeMillis() - Long.parseLong(validatedAt) < revalidateMs;
+	}
+
+	/**
+	 * Returns the sha256 of the given url's content, downloading it into the store if necessary.
+	 * If knownMissing is non-null, then the store doesn't have that blob anymore, even if the index says otherwise.
+	 * A cached entry which is due for revalidation is returned as-is, see {@link #revalidateInBackgroundIfStale}.
+	 */
+	private static String sha256ForUrl(String url, BuildState build, Map<String, String> source, ContentStore store, long revalidateMs, @Nullable String knownMissing) throws Exception {
+		Map<String, String> entry = index().get(url);
+		if (entry != null && knownMissing == null) {
+			return entry.get(CacheIndex.SHA256);
+		}
+		if (ArchiveUrl.isArchive(url)) {
+			return sha256FromArchive(url, build, source, store);
+		}
+		return sha256ForUrlLocked(url, build, source, store, revalidateMs, knownMissing);
+	}
+
+	/** Downloads the given url under its lock, unless another process already did, and revalidates it if it's due. */
+	private static String sha256ForUrlLocked(String url, BuildState build, Map<String, String> source, ContentStore store, long revalidateMs, @Nullable String knownMissing) throws Exception {
+		File lockFile = new File(cacheDir(), "locks/" + Hashing.sha256().hashString(url, StandardCharsets.UTF_8));
+		build.fetched.add(url);
+		for (int attempt = 0;; ++attempt) {
+			try {
+				// only one process downloads, the others wait here and then reuse its result
+				long lockStart = System.nanoTime();
+				return lockedForUrl(url, lockFile, () -> {
+					build.metrics.waitedForLock(url, System.nanoTime() - lockStart);
+					index().refresh();
+					Map<String, String> downloadedByOther = index().get(url);
+					Map<String, String> stale = null;
+					if (downloadedByOther != null) {
+						String sha256 = downloadedByOther.get(CacheIndex.SHA256);
+						if (!sha256.equals(knownMissing) && store.contains(sha256)) {
+							if (isFresh(build, downloadedByOther, revalidateMs)) {
+								return sha256;
+							}
+							stale = downloadedByOther;
+						}
 					}
-					Files.createParentDirs(dataFile);
-					download(url, dataFile);
-					Properties props = new Properties();
-					props.setProperty("version", "1");
-					props.setProperty(PROP_URL, url);
-					props.setProperty("downloadedAt", new Date().toString());
-					try (OutputStream output = Files.asByteSink(metaFile).openBufferedStream()) {
-						props.store(output, "");
+					if (revalidateMs != NEVER_REVALIDATE) {
+						return downloadIfModified(url, build, stale, source, store);
 					}
-					urlToContent.put(cacheKey, dataFile);
-					return dataFile;
+					File tempFile = store.newTempFile();
+					long downloadStart = System.nanoTime();
+					String downloaded = download(url, build, tempFile);
+					build.metrics.downloaded(url, tempFile.length(), System.nanoTime() - downloadStart);
+					store.add(tempFile, downloaded);
+					index().put(url, indexEntry(downloaded, source));
+					return downloaded;
+				});
+			} catch (NoSuchFileException e) {
+				if (attempt > 0) {
+					throw e;
 				}
-			} catch (IOException | URISyntaxException e) {
-				throw Errors.asRuntime(e);
+				// another process wiped the cache out from under us, so try again from scratch
+			}
+		}
+	}
+
+	/** Holds the given url's lock file while calling the callable, taking turns with the other threads in this JVM first. */
+	private static <T> T lockedForUrl(String url, File lockFile, Callable<T> callable) throws Exception {
+		synchronized (urlLocks.computeIfAbsent(url, unused -> new Object())) {
+			return AtomicFiles.locked(lockFile, callable);
+		}
+	}
+
+	/**
+	 * Downloads the given url unless it still matches the stale entry's ETag or Last-Modified, in which case the
+	 * server answers 304 with no body, and the entry is marked as validated again. Returns the sha256 either way.
+	 */
+	private static String downloadIfModified(String url, BuildState build, @Nullable Map<String, String> stale, Map<String, String> source, ContentStore store) throws Exception {
+		long downloadStart = System.nanoTime();
+		Request.Builder req = new Request.Builder().url(url).tag(BuildState.class, build);
+		build.authPlugin.addAuthToken(url, req);
+		if (stale != null && stale.containsKey(CacheIndex.ETAG)) {
+			req.header("If-None-Match", stale.get(CacheIndex.ETAG));
+		}
+		if (stale != null && stale.containsKey(CacheIndex.LAST_MODIFIED)) {
+			req.header("If-Modified-Since", stale.get(CacheIndex.LAST_MODIFIED));
+		}
+		try (Response response = SharedHttpClient.get(build).newCall(req.build()).execute()) {
+			if (stale != null && response.code() == 304) {
+				Map<String, String> revalidated = new LinkedHashMap<>(stale);
+				revalidated.put(CacheIndex.VALIDATED_AT, Long.toString(System.currentTimeMillis()));
+				index().put(url, revalidated);
+				return stale.get(CacheIndex.SHA256);
+			} else if (!response.isSuccessful()) {
+				throw new IllegalArgumentException(url + "\nreceived http code " + response.code() + "\n" + response.body().string());
+			}
+			File tempFile = store.newTempFile();
+			String downloaded;
+			try (ResponseBody body = response.body()) {
+				if (body == null) {
+					throw new IllegalArgumentException("Body was expected to be non-null");
+				}
+				downloaded = Transfers.copyHashing(body.byteStream(), tempFile);
+			}
+			build.metrics.downloaded(url, tempFile.length(), System.nanoTime() - downloadStart);
+			store.add(tempFile, downloaded);
+			Map<String, String> attributes = indexEntry(downloaded, source);
+			attributes.put(CacheIndex.VALIDATED_AT, Long.toString(System.currentTimeMillis()));
+			String etag = response.header("ETag");
+			if (etag != null) {
+				attributes.put(CacheIndex.ETAG, etag);
+			}
+			String lastModified = response.header("Last-Modified");
+			if (lastModified != null) {
+				attributes.put(CacheIndex.LAST_MODIFIED, lastModified);
+			}
+			index().put(url, attributes);
+			return downloaded;
+		}
+	}
+
+	private static Map<String, String> indexEntry(String sha256, Map<String, String> source) {
+		Map<String, String> attributes = new LinkedHashMap<>();
+		attributes.put(CacheIndex.SHA256, sha256);
+		attributes.put(CacheIndex.DOWNLOADED_AT, Long.toString(System.currentTimeMillis()));
+		attributes.putAll(source);
+		return attributes;
+	}
+
+	/** Returns the sha256 of a resource within an archive, extracting the archive unless another thread or process already did. */
+	private static String sha256FromArchive(String url, BuildState build, Map<String, String> source, ContentStore store) throws Exception {
+		ArchiveUrl archive = ArchiveUrl.parse(url);
+		archiveInFlight.get(archive.root(), () -> {
+			File lockFile = new File(cacheDir(), "locks/" + Hashing.sha256().hashString(archive.root(), StandardCharsets.UTF_8));
+			long lockStart = System.nanoTime();
+			return AtomicFiles.locked(lockFile, () -> {
+				build.metrics.waitedForLock(archive.root(), System.nanoTime() - lockStart);
+				index().refresh();
+				Map<String, String> extractedByOther = index().get(url);
+				if (extractedByOther != null ? !store.contains(extractedByOther.get(CacheIndex.SHA256)) : index().get(archive.root()) == null) {
+					// either it was never extracted, or this file's blob was evicted since
+					extractArchive(archive, build, source, store);
+				}
+				return null;
+			});
+		});
+		Map<String, String> entry = index().get(url);
+		if (entry == null) {
+			// the whole archive is in the index, so there's no need to download it again to find out
+			throw new FileNotFoundException("Could not find '" + archive.resource + "' in '" + archive.archiveUrl + "'");
+		}
+		return entry.get(CacheIndex.SHA256);
+	}
+
+	/**
+	 * Downloads the archive once (or reads it in place, for a local jar), and adds every file within its folder to the
+	 * store and the index, along with an {@link CacheIndex#ARCHIVE} entry for {@link ArchiveUrl#root()}.
+	 */
+	private static void extractArchive(ArchiveUrl archive, BuildState build, Map<String, String> source, ContentStore store) throws Exception {
+		if (archive.archiveUrl.startsWith(FILE_PROTOCOL)) {
+			File jarFile = new File(new URI(archive.archiveUrl));
+			String sha256 = Files.asByteSource(jarFile).hash(Hashing.sha256()).toString();
+			LocalJars.read(jarFile, jar -> {
+				// a jar's resources are mixed in with its classes, which nobody asks Blowdryer for
+				extractArchive(archive, sha256, jar, path -> !path.endsWith(".class"), source, store);
+				return null;
+			});
+			return;
+		}
+		File zip = store.newTempFile();
+		try {
+			long downloadStart = System.nanoTime();
+			String sha256 = downloadRemote(archive.archiveUrl, build, zip);
+			build.metrics.downloaded(archive.archiveUrl, zip.length(), System.nanoTime() - downloadStart);
+			try (ZipFile zipFile = new ZipFile(zip)) {
+				extractArchive(archive, sha256, zipFile, path -> true, source, store);
 			}
+		} finally {
+			java.nio.file.Files.deleteIfExists(zip.toPath());
 		}
 	}
 
-	private static Map<String, String> loadPropertyFile(File file) throws IOException {
+	private static void extractArchive(ArchiveUrl archive, String archiveSha256, ZipFile zipFile, Predicate<String> include, Map<String, String> source, ContentStore store) throws IOException {
+		Map<String, Map<String, String>> extracted = new LinkedHashMap<>();
+		Enumeration<? extends ZipEntry> entries = zipFile.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			String path = entry.isDirectory() ? null : archive.relativize(entry.getName());
+			if (path == null || !include.test(path)) {
+				continue;
+			}
+			File tempFile = store.newTempFile();
+			String sha256 = Transfers.copyHashing(zipFile.getInputStream(entry), tempFile);
+			store.add(tempFile, sha256);
+			extracted.put(archive.root() + path, indexEntry(sha256, source));
+		}
+		if (extracted.isEmpty()) {
+			throw new FileNotFoundException("'" + archive.archiveUrl + "' has no files in '" + archive.folder + "'");
+		}
+		Map<String, String> root = new LinkedHashMap<>();
+		root.put(CacheIndex.ARCHIVE, archiveSha256);
+		root.put(CacheIndex.DOWNLOADED_AT, Long.toString(System.currentTimeMillis()));
+		root.putAll(source);
+		// in the same write as its files, so that nobody sees the root without them
+		extracted.put(archive.root(), root);
+		index().putAll(extracted);
+	}
+
+	/** Returns the properties in the given file as an immutable map. */
+	static Map<String, String> loadPropertyFile(File file) {
 		Properties props = new Properties();
 		try (InputStream input = Files.asByteSource(file).openBufferedStream()) {
 			props.load(input);
+		} catch (IOException e) {
+			throw Errors.asRuntime(e);
 		}
-		Map<String, String> asMap = new HashMap<>(props.size());
+		Map<String, String> asMap = new HashMap<>(props.size() * 4 / 3 + 1);
 		for (Map.Entry<Object, Object> entry : props.entrySet()) {
 			asMap.put(entry.getKey().toString(), entry.getValue().toString());
 		}
-		return asMap;
+		return Collections.unmodifiableMap(asMap);
 	}
 
-	private static final String PROP_URL = "url";
-
-	private static void download(String url, File dst) throws IOException, URISyntaxException {
+	/** Downloads the given url into dst, and returns the SHA-256 of its content. */
+	private static String download(String url, BuildState build, File dst) throws IOException, URISyntaxException {
 		if (url.startsWith(FILE_PROTOCOL)) {
-			downloadLocal(url, dst);
+			return downloadLocal(url, dst);
 		} else {
-			downloadRemote(url, dst);
+			return downloadRemote(url, build, dst);
 		}
 	}
 
-	private static void downloadLocal(String url, File dst) throws IOException, URISyntaxException {
+	static String downloadLocal(String url, File dst) throws IOException, URISyntaxException {
 
 		String[] splitUrl = url.split(JAR_FILE_RESOURCE_SEPARATOR);
 		if (splitUrl.length != 2) {
@@ -193,32 +847,28 @@ public class Blowdryer {
 		String jarPath = splitUrl[0];
 		String filename = splitUrl[1];
 
-		URI jarPathUri = new URI(jarPath);
-		try (ZipFile jar = new ZipFile(new File(jarPathUri))) {
-			ZipEntry foundEntry = jar.stream()
-					.filter(s -> s.getName().equals(filename)).findAny()
-					.orElseThrow(() -> new FileNotFoundException("Could not find '" + filename + "' in '" + jarPath + "'"));
-
-			java.nio.file.Files.copy(jar.getInputStream(foundEntry), dst.toPath());
-		}
+		return LocalJars.read(new File(new URI(jarPath)), jar -> {
+			ZipEntry foundEntry = jar.getEntry(filename);
+			if (foundEntry == null) {
+				throw new FileNotFoundException("Could not find '" + filename + "' in '" + jarPath + "'");
+			}
+			// a stored entry is read straight out of the jar, a deflated one gets inflated on the way
+			return Transfers.copyHashing(jar.getInputStream(foundEntry), dst);
+		});
 	}
 
-	private static void downloadRemote(String url, File dst) throws IOException {
-		OkHttpClient client = new OkHttpClient.Builder()
-				.addInterceptor(new RateLimitInterceptor())
-				.build();
-		Request.Builder req = new Request.Builder().url(url);
-		authPlugin.addAuthToken(url, req);
-		try (Response response = client.newCall(req.build()).execute()) {
+	private static String downloadRemote(String url, BuildState build, File dst) throws IOException {
+		Request.Builder req = new Request.Builder().url(url).tag(BuildState.class, build);
+		build.authPlugin.addAuthToken(url, req);
+		try (Response response = SharedHttpClient.get(build).newCall(req.build()).execute()) {
 			if (!response.isSuccessful()) {
 				throw new IllegalArgumentException(url + "\nreceived http code " + response.code() + "\n" + response.body().string());
 			}
-			try (ResponseBody body = response.body();
-					BufferedSink sink = Okio.buffer(Okio.sink(dst))) {
+			try (ResponseBody body = response.body()) {
 				if (body == null) {
 					throw new IllegalArgumentException("Body was expected to be non-null");
 				}
-				sink.writeAll(body.source());
+				return Transfers.copyHashing(body.byteStream(), dst);
 			}
 		}
 	}
@@ -253,10 +903,59 @@ public class Blowdryer {
 		String toImmutableUrl(String resourcePath);
 	}
 
-	private static ResourcePlugin plugin;
+	private static volatile BuildState current = new BuildState();
+	private static final Map<File, BuildState> buildsByRoot = new ConcurrentHashMap<>();
+
+	/** The build which the static methods resolve against: the one whose settings were evaluated most recently. */
+	static BuildState current() {
+		return current;
+	}
+
+	/** Returns the build which the given project belongs to. */
+	static BuildState buildOf(Project project) {
+		BuildState build = buildsByRoot.get(project.getRootDir());
+		return build == null ? current : build;
+	}
+
+	/** Every build which is running in this JVM right now. */
+	private static Set<BuildState> activeBuilds() {
+		Set<BuildState> builds = new HashSet<>(buildsByRoot.values());
+		builds.add(current);
+		return builds;
+	}
+
+	/** Called as each build (or included build) applies {@link BlowdryerSetupPlugin}. */
+	static void buildStarted(File rootDir, BuildState build, ProviderFactory providers) {
+		build.providers = providers;
+		build.warm = revalidateWarmCache();
+		buildsByRoot.put(rootDir, build);
+		current = build;
+	}
+
+	/** Called by {@link BlowdryerBuildService} once its build is finished. */
+	static void buildFinished(BuildState build) {
+		buildsByRoot.values().removeIf(build::equals);
+		build.providers = null;
+		File reportFile = build.reportFile;
+		if (reportFile != null) {
+			try {
+				build.metrics.writeReport(reportFile);
+			} catch (IOException e) {
+				System.err.println("Blowdryer could not write its report to " + reportFile + ": " + e);
+			}
+		}
+	}
+
+	/**
+	 * Adds a listener which is notified of everything the current build resolves, for the rest of that build.
+	 * Must be called after the `blowdryerSetup` plugin has been applied, e.g. from a settings plugin.
+	 */
+	public static void addListener(BlowdryerListener listener) {
+		current.metrics.listeners.add(Objects.requireNonNull(listener));
+	}
 
 	static void assertPluginNotSet(String errorMessage) {
-		if (Blowdryer.plugin != null) {
+		if (current.plugin != null) {
 			throw new IllegalStateException(errorMessage);
 		}
 	}
@@ -266,10 +965,7 @@ public class Blowdryer {
 	}
 
 	static void setResourcePluginNull() {
-		synchronized (Blowdryer.class) {
-			Blowdryer.plugin = null;
-			Blowdryer.authPlugin = authPluginNone;
-		}
+		current.reset();
 	}
 
 	static void setResourcePlugin(ResourcePlugin plugin) {
@@ -277,17 +973,49 @@ public class Blowdryer {
 	}
 
 	static void setResourcePlugin(ResourcePlugin plugin, AuthPlugin authPlugin) {
-		synchronized (Blowdryer.class) {
+		setResourcePlugin(plugin, authPlugin, null, null);
+	}
+
+	/** The repo and anchor are recorded in the cache index, so that they can be wiped selectively later. */
+	static void setResourcePlugin(ResourcePlugin plugin, @Nullable AuthPlugin authPlugin, @Nullable String repo, @Nullable String anchor) {
+		BuildState build = current;
+		synchronized (build) {
 			assertPluginNotSet();
-			Blowdryer.plugin = plugin;
-			Blowdryer.authPlugin = authPlugin == null ? authPluginNone : authPlugin;
+			Map<String, String> source = new LinkedHashMap<>();
+			if (repo != null) {
+				source.put(CacheIndex.REPO, repo);
+			}
+			if (anchor != null) {
+				source.put(CacheIndex.ANCHOR, anchor);
+			}
+			build.authPlugin = authPlugin == null ? AUTH_NONE : authPlugin;
+			build.source = Collections.unmodifiableMap(source);
+			build.prefetchManifest = repo == null ? null : prefetchManifests.computeIfAbsent(
+					new File(cacheDir(), "prefetch/" + Hashing.sha256().hashString(repo, StandardCharsets.UTF_8) + ".txt"), PrefetchManifest::new);
+			build.plugin = plugin;
 		}
 	}
 
-	private static void assertInitialized() {
+	/** Makes every resource from the current source get revalidated once it's older than the given interval. */
+	static void setRevalidateEvery(long revalidateMs) {
+		current.revalidateMs = revalidateMs;
+	}
+
+	static void setHttpTimeouts(int connectTimeoutSeconds, int readTimeoutSeconds) {
+		current.connectTimeoutSeconds = connectTimeoutSeconds;
+		current.readTimeoutSeconds = readTimeoutSeconds;
+	}
+
+	static void setCompressMinBytes(long compressMinBytes) {
+		current.compressMinBytes = compressMinBytes;
+	}
+
+	private static ResourcePlugin assertInitialized(BuildState build) {
+		ResourcePlugin plugin = build.plugin;
 		if (plugin == null) {
 			throw new IllegalStateException("You needed to initialize the `blowdryer` plugin in the root build.gradle first.");
 		}
+		return plugin;
 	}
 
 	@FunctionalInterface
@@ -295,21 +1023,119 @@ public class Blowdryer {
 		void addAuthToken(String url, Request.Builder builder) throws MalformedURLException;
 	}
 
-	private static final AuthPlugin authPluginNone = (url, builder) -> {};
-	private static AuthPlugin authPlugin = authPluginNone;
+	static final AuthPlugin AUTH_NONE = (url, builder) -> {};
 
 	/** Returns the given resource as a File (as configured by {@link BlowdryerSetup}. */
 	public static File file(String resourcePath) {
-		synchronized (Blowdryer.class) {
-			assertInitialized();
-			if (plugin instanceof DevPlugin) {
-				return new File(((DevPlugin) plugin).root, resourcePath);
-			} else {
-				int lastDot = resourcePath.lastIndexOf('.');
-				String preserveExtension = lastDot == -1 ? null : resourcePath.substring(lastDot);
-				return immutableUrl(plugin.toImmutableUrl(resourcePath), preserveExtension);
+		return file(current, resourcePath);
+	}
+
+	static File file(BuildState build, String resourcePath) {
+		ResourcePlugin plugin = assertInitialized(build);
+		if (plugin instanceof DevPlugin) {
+			return new File(((DevPlugin) plugin).root, resourcePath);
+		} else {
+			File file = resolve(build, plugin, resourcePath);
+			recordInputs(build, plugin, resourcePath, file);
+			return file;
+		}
+	}
+
+	/**
+	 * Remembers the given resource for the next build's prefetch, and registers its immutable url as a configuration
+	 * cache input for the content it resolved to. Must be called from the thread which is configuring, since that's
+	 * the one Gradle tracks.
+	 */
+	private static void recordInputs(BuildState build, ResourcePlugin plugin, String resourcePath, File resolved) {
+		if (!build.recorded.add(resourcePath)) {
+			return;
+		}
+		PrefetchManifest manifest = build.prefetchManifest;
+		if (manifest != null) {
+			manifest.record(resourcePath);
+		}
+		ProviderFactory providers = build.providers;
+		if (providers != null) {
+			BlowdryerSetupPlugin.atConfigurationTime(providers.of(ImmutableUrlSource.class, spec -> {
+				spec.getParameters().getTempDir().set(cacheTempDir.getAbsolutePath());
+				spec.getParameters().getUrl().set(plugin.toImmutableUrl(resourcePath));
+				spec.getParameters().getRequiredSuffix().set(extensionOf(resourcePath));
+				// files/<sha256>/<name>
+				spec.getParameters().getSha256().set(resolved.getParentFile().getName());
+				spec.getParameters().getRevalidateMs().set(build.revalidateMs);
+				spec.getParameters().getResolvedAt().set(System.currentTimeMillis());
+			}));
+		}
+	}
+
+	private static File resolve(BuildState build, ResourcePlugin plugin, String resourcePath) {
+		return immutableUrl(build, plugin.toImmutableUrl(resourcePath), extensionOf(resourcePath), build.source, build.revalidateMs);
+	}
+
+	private static @Nullable String extensionOf(String resourcePath) {
+		int lastDot = resourcePath.lastIndexOf('.');
+		return lastDot == -1 ? null : resourcePath.substring(lastDot);
+	}
+
+	/**
+	 * Fetches every resource which earlier builds resolved from the current repo, in parallel on background threads,
+	 * so that the `file()` calls which follow find them already cached. A prefetch which fails is ignored here, and
+	 * `file()` reports the error if the build really does use that resource. Either way it's dropped from the manifest.
+	 */
+	static CompletableFuture<Void> prefetchInBackground() {
+		return prefetchInBackground(current);
+	}
+
+	static CompletableFuture<Void> prefetchInBackground(BuildState build) {
+		ResourcePlugin plugin = build.plugin;
+		PrefetchManifest manifest = build.prefetchManifest;
+		if (plugin == null || manifest == null || build.offline) {
+			return CompletableFuture.completedFuture(null);
+		}
+		List<String> resources = manifest.resources();
+		if (resources.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
+		Set<String> failed = ConcurrentHashMap.newKeySet();
+		return CompletableFuture.allOf(FetchExecutor.submitAll(resources, resource -> {
+			try {
+				return resolve(build, plugin, resource);
+			} catch (RuntimeException e) {
+				// maybe the resource was deleted, it only matters if the build asks for it
+				failed.add(resource);
+				return null;
+			}
+		}).toArray(new CompletableFuture[0])).thenRun(() -> {
+			if (!failed.isEmpty()) {
+				// so that every later build doesn't try again, if this one does use it then it gets recorded again
+				manifest.forget(failed);
 			}
+		});
+	}
+
+	/**
+	 * Returns the given resources as Files, fetching them in parallel, in the same order as the given paths.
+	 * If any of them fail, the exception lists every failure rather than just the first.
+	 */
+	public static List<File> files(List<String> resourcePaths) {
+		return files(current, resourcePaths);
+	}
+
+	/** Returns the given resources as Files, fetching them in parallel, see {@link #files(List)}. */
+	public static List<File> files(String... resourcePaths) {
+		return files(Arrays.asList(resourcePaths));
+	}
+
+	static List<File> files(BuildState build, List<String> resourcePaths) {
+		ResourcePlugin plugin = assertInitialized(build);
+		if (plugin instanceof DevPlugin) {
+			return FetchExecutor.mapAll(resourcePaths, resourcePath -> file(build, resourcePath));
+		}
+		List<File> files = FetchExecutor.mapAll(resourcePaths, resourcePath -> resolve(build, plugin, resourcePath));
+		for (int i = 0; i < resourcePaths.size(); ++i) {
+			recordInputs(build, plugin, resourcePaths.get(i), files.get(i));
 		}
+		return files;
 	}
 
 	static final class DevPlugin implements ResourcePlugin {
@@ -329,32 +1155,39 @@ public class Blowdryer {
 	////////////////
 	// Properties //
 	////////////////
-	/** Returns all of the properties from the given url. */
-	private static Map<String, String> props(String resourcePath) {
-		synchronized (Blowdryer.class) {
-			try {
-				assertInitialized();
-				if (plugin instanceof DevPlugin) {
-					return loadPropertyFile(file(resourcePath));
-				} else {
-					File file = file(resourcePath);
-					Map<String, String> props = fileToProps.get(file);
-					if (props != null) {
-						return props;
-					}
-					props = loadPropertyFile(file);
-					fileToProps.put(file, props);
-					return props;
-				}
-			} catch (IOException e) {
-				throw Errors.asRuntime(e);
-			}
+	/**
+	 * Returns every property in the given propFile (adds .properties extension automatically), as an immutable
+	 * snapshot which is safe to share and to read from any thread. After the first call in a build, this is a
+	 * lock-free map lookup which doesn't touch the filesystem. In `devLocal` mode the file is parsed every time.
+	 */
+	public static Map<String, String> props(String propFile) {
+		return props(current, propFile);
+	}
+
+	static Map<String, String> props(BuildState build, String propFile) {
+		String resourcePath = propFile + ".properties";
+		if (assertInitialized(build) instanceof DevPlugin) {
+			return loadPropertyFile(file(build, resourcePath));
 		}
+		Map<String, String> props = build.resourceToProps.get(resourcePath);
+		if (props == null) {
+			File file = file(build, resourcePath);
+			// different resources (or anchors) can point at the same immutable file, so it only gets opened once
+			props = fileToProps.computeIfAbsent(file, PropsIndex::of);
+			build.resourceToProps.put(resourcePath, props);
+			build.metrics.propsLoaded(propFile);
+		}
+		return props;
 	}
 
 	/** Returns the key from the given propFile (adds .properties extension automatically). */
 	public static String prop(String propFile, String key) throws IOException {
-		Map<String, String> map = props(propFile + ".properties");
+		return prop(current, propFile, key);
+	}
+
+	static String prop(BuildState build, String propFile, String key) {
+		build.metrics.propLookups.increment();
+		Map<String, String> map = props(build, propFile);
 		String value = map.get(key);
 		if (value == null) {
 			throw new IllegalArgumentException(propFile + ".properties does not have key '" + key + "', does have " + map.keySet());
@@ -416,24 +1249,49 @@ public class Blowdryer {
 			this.project = project;
 		}
 
+		/** Resolved when it's used rather than when it's created, since that's after the project's build has started. */
+		private BuildState build() {
+			return buildOf(project);
+		}
+
 		/** Alias for {@link Blowdryer#immutableUrl(String)}. */
 		public File immutableUrl(String url) {
-			return Blowdryer.immutableUrl(url);
+			return Blowdryer.immutableUrl(build(), url, null);
 		}
 
 		/** Alias for {@link Blowdryer#immutableUrl(String, String)}. */
 		public File immutableUrl(String url, @Nullable String requiredSuffix) {
-			return Blowdryer.immutableUrl(url, requiredSuffix);
+			return Blowdryer.immutableUrl(build(), url, requiredSuffix);
 		}
 
 		/** Alias for {@link Blowdryer#file(String)}. */
 		public File file(String resource) {
-			return Blowdryer.file(resource);
+			return Blowdryer.file(build(), resource);
+		}
+
+		/** Alias for {@link Blowdryer#files(List)}. */
+		public List<File> files(List<String> resources) {
+			return Blowdryer.files(build(), resources);
+		}
+
+		/** Alias for {@link Blowdryer#files(String...)}. */
+		public List<File> files(String... resources) {
+			return Blowdryer.files(build(), Arrays.asList(resources));
+		}
+
+		/** Alias for {@link Blowdryer#props(String)}. */
+		public Map<String, String> props(String propFile) {
+			return Blowdryer.props(build(), propFile);
 		}
 
 		/** Alias for {@link Blowdryer#prop(String, String)}. */
 		public String prop(String propFile, String key) throws IOException {
-			return Blowdryer.prop(propFile, key);
+			return Blowdryer.prop(build(), propFile, key);
+		}
+
+		/** Alias for {@link Blowdryer#addListener(BlowdryerListener)}, for the build which this project belongs to. */
+		public void addListener(BlowdryerListener listener) {
+			build().metrics.listeners.add(Objects.requireNonNull(listener));
 		}
 
 		/** Alias for {@link Blowdryer#proj(Project, String, String)}. */
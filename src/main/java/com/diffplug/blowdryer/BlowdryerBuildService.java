@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Holds Blowdryer's state for one build, registered by {@link BlowdryerSetupPlugin}. Gradle creates a fresh
+ * one for every build (and every included build), and closes it once the build is finished, so nothing
+ * leaks from one build into the next one in the same daemon. Not intended for use outside of Blowdryer.
+ */
+public abstract class BlowdryerBuildService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+	static final String NAME = "blowdryer";
+
+	final BuildState state = new BuildState();
+
+	@Override
+	public void close() {
+		Blowdryer.buildFinished(state);
+	}
+}
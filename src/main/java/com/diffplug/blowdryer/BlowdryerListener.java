@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+/**
+ * Receives an event for everything Blowdryer resolves during a build, see {@link Blowdryer#addListener(BlowdryerListener)}.
+ * Events arrive on whichever thread did the work, possibly several at once, so implementations must be thread-safe.
+ * An exception thrown by a listener gets logged, and never fails the resolution.
+ */
+public interface BlowdryerListener {
+	/** Where a resolved url was found. */
+	enum Source {
+		/** Already resolved by this daemon, no filesystem access. */
+		MEMORY,
+		/** In the cache on disk, from an earlier build or another daemon. */
+		DISK,
+		/** Downloaded (or waited on another thread's download). */
+		DOWNLOAD
+	}
+
+	/** Called every time a url is resolved to a file, with how long it took. */
+	default void resolved(String url, Source source, long nanos) {}
+
+	/** Called after each download, with the number of bytes which were transferred. */
+	default void downloaded(String url, long bytes, long nanos) {}
+
+	/** Called when a host rate-limits a request and Blowdryer waits before retrying it. */
+	default void rateLimited(String url, long waitMillis) {}
+
+	/** Called with how long a download waited for another process which was downloading the same url. */
+	default void waitedForLock(String url, long nanos) {}
+
+	/** Called the first time a build reads the properties in a propFile, the lookups after that are just map lookups. */
+	default void propsLoaded(String propFile) {}
+}
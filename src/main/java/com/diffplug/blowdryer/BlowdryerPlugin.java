@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2019-2020 DiffPlug
+ * Copyright (C) 2019-2026 DiffPlug
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,8 @@ import org.gradle.util.GradleVersion;
 public class BlowdryerPlugin implements Plugin<Project> {
 	static final String PLUGIN_ID = "com.diffplug.blowdryer";
 	static final String WIPE_CACHE_TASK = "blowdryerWipeEntireCache";
+	static final String WIPE_CACHE_SELECTIVE_TASK = "blowdryerWipeCache";
+	static final String REFRESH_TAGS_TASK = "blowdryerRefreshTags";
 
 	@Override
 	public void apply(Project root) {
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2018-2020 DiffPlug
+ * Copyright (C) 2018-2026 DiffPlug
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,5 +23,7 @@ class BlowdryerPluginConfigAvoidance {
 		root.getTasks().register(BlowdryerPlugin.WIPE_CACHE_TASK, task -> {
 			task.doFirst(unused -> Blowdryer.wipeEntireCache());
 		});
+		root.getTasks().register(BlowdryerPlugin.WIPE_CACHE_SELECTIVE_TASK, BlowdryerWipeCacheTask.class);
+		root.getTasks().register(BlowdryerPlugin.REFRESH_TAGS_TASK, BlowdryerRefreshTagsTask.class);
 	}
 }
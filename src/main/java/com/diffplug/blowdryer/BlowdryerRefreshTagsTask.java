@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+
+import java.util.List;
+import javax.annotation.Nullable;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+/**
+ * Forgets which commit each Bitbucket tag resolved to, so that the next build resolves them again, e.g.
+ * `gradlew blowdryerRefreshTags --repo=acme/blowdryer-acme --tag=v1.4.5` after that tag was moved.
+ */
+public class BlowdryerRefreshTagsTask extends DefaultTask {
+	private @Nullable String repo, tag;
+
+	@Input
+	@Optional
+	public @Nullable String getRepo() {
+		return repo;
+	}
+
+	@Option(option = "repo", description = "Only refresh tags of this repo, e.g. acme/blowdryer-acme.")
+	public void setRepo(String repo) {
+		this.repo = repo;
+	}
+
+	@Input
+	@Optional
+	public @Nullable String getTag() {
+		return tag;
+	}
+
+	@Option(option = "tag", description = "Only refresh this tag.")
+	public void setTag(String tag) {
+		this.tag = tag;
+	}
+
+	@TaskAction
+	public void refresh() {
+		List<String> forgotten = Blowdryer.forgetTags((url, attributes) -> (repo == null || repo.equals(attributes.get(CacheIndex.REPO)))
+				&& (tag == null || tag.equals(attributes.get(CacheIndex.ANCHOR))));
+		for (String url : forgotten) {
+			getLogger().lifecycle("Forgot " + url);
+		}
+		getLogger().lifecycle("Forgot " + forgotten.size() + (forgotten.size() == 1 ? " tag" : " tags") + ", the next build will resolve " + (forgotten.size() == 1 ? "it" : "them") + " again.");
+	}
+}
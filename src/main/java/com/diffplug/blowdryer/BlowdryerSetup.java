@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2019-2023 DiffPlug
+ * Copyright (C) 2019-2026 DiffPlug
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -29,10 +29,10 @@ import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Request.Builder;
 import okhttp3.Response;
@@ -46,6 +46,8 @@ public class BlowdryerSetup {
 	static final String NAME = "blowdryerSetup";
 
 	private static final String GITHUB_HOST = "raw.githubusercontent.com";
+	private static final String GITHUB_API_HOST = "api.github.com";
+	private static final String BITBUCKET_ARCHIVE_HOST = "bitbucket.org";
 	private static final String GITLAB_HOST = "gitlab.com";
 	private static final String BITBUCKET_HOST = "api.bitbucket.org/2.0/repositories";
 
@@ -53,10 +55,14 @@ public class BlowdryerSetup {
 	private static final String HTTPS_PROTOCOL = "https://";
 
 	private final File rootDir;
+	/** The build whose settings created this, which every request it makes belongs to. */
+	private final BuildState build = Blowdryer.current();
 
 	/** Pass in the directory that will be used to resolve string arguments to devLocal. */
 	public BlowdryerSetup(File rootDir) {
-		Blowdryer.setResourcePluginNull(); // because of gradle daemon
+		Blowdryer.setResourcePluginNull(); // a new setup always starts without a source
+		Blowdryer.setHttpTimeouts(SharedHttpClient.DEFAULT_CONNECT_TIMEOUT_SECONDS, SharedHttpClient.DEFAULT_READ_TIMEOUT_SECONDS);
+		Blowdryer.setCompressMinBytes(ContentStore.NEVER_COMPRESS);
 		this.rootDir = rootDir;
 	}
 
@@ -76,49 +82,120 @@ public class BlowdryerSetup {
 		this.repoSubfolder = assertNoLeadingOrTrailingSlash(repoSubfolder);
 	}
 
+	long cacheMaxBytes = CacheGc.UNLIMITED;
+	long cacheMaxAgeMs = CacheGc.DEFAULT_MAX_AGE_MS;
+
+	/**
+	 * The cache is shared by every build on this machine. Once it grows past this size, the
+	 * least-recently-used content gets evicted in the background. Default is no limit.
+	 */
+	public void cacheMaxSizeMb(long cacheMaxSizeMb) {
+		this.cacheMaxBytes = cacheMaxSizeMb * 1024 * 1024;
+	}
+
+	/** Content which hasn't been used by any build on this machine for this many days gets evicted in the background. Default is 30. */
+	public void cacheMaxAgeDays(long cacheMaxAgeDays) {
+		this.cacheMaxAgeMs = TimeUnit.DAYS.toMillis(cacheMaxAgeDays);
+	}
+
+	/**
+	 * Text content at least this big gets stored gzipped, and inflated into a file when it's used.
+	 * Inflated files which go unused for a day are deleted, but the gzip stays. Default is no compression.
+	 */
+	public void cacheCompressMinKb(long cacheCompressMinKb) {
+		Blowdryer.setCompressMinBytes(cacheCompressMinKb * 1024);
+	}
+
+	/** Sets the connect and read timeouts for every download, default is 10 and 30 seconds. */
+	public void httpTimeouts(int connectSeconds, int readSeconds) {
+		Blowdryer.setHttpTimeouts(connectSeconds, readSeconds);
+	}
+
+	/** A `BRANCH` can move, so its content gets revalidated every 10 minutes unless you set `revalidateEvery`. */
 	public enum GitAnchorType {
-		TAG, COMMIT, TREE
+		TAG, COMMIT, TREE, BRANCH
+	}
+
+	static final long BRANCH_REVALIDATE_MS = TimeUnit.MINUTES.toMillis(10);
+
+	private static long defaultRevalidateMs(GitAnchorType anchorType) {
+		return anchorType == GitAnchorType.BRANCH ? BRANCH_REVALIDATE_MS : Blowdryer.NEVER_REVALIDATE;
+	}
+
+	/** Sets the revalidation interval for the source which was just configured. */
+	private static void setRevalidateEvery(long revalidateMs, boolean archive) {
+		if (archive && revalidateMs != Blowdryer.NEVER_REVALIDATE) {
+			throw new IllegalArgumentException("archive() needs an anchor which never moves, such as a TAG or COMMIT, it can't be revalidated");
+		}
+		Blowdryer.setRevalidateEvery(revalidateMs);
 	}
 
 	/** Sets the source where we will grab these scripts. */
 	public GitHub github(String repoOrg, GitAnchorType anchorType, String anchor) {
-		// anchorType isn't used right now, but makes it easier to read what "anchor" is
-		return new GitHub(repoOrg, anchor);
+		return new GitHub(repoOrg, anchorType, anchor);
 	}
 
 	public class GitHub {
 		private String repoOrg;
 		private String anchor;
 		private @Nullable String authToken;
+		private boolean archive;
+		private long revalidateMs;
 
-		private GitHub(String repoOrg, String anchor) {
+		private GitHub(String repoOrg, GitAnchorType anchorType, String anchor) {
 			Blowdryer.assertPluginNotSet();
 			this.repoOrg = assertNoLeadingOrTrailingSlash(repoOrg);
 			this.anchor = assertNoLeadingOrTrailingSlash(anchor);
+			this.revalidateMs = defaultRevalidateMs(anchorType);
 			setGlobals();
 		}
 
+		/**
+		 * For an anchor which can move, such as a BRANCH: asks GitHub whether each resource has changed once it's older
+		 * than this (e.g. `10m`), which costs a request with no body if it hasn't. Within it, there are no requests at all.
+		 */
+		public GitHub revalidateEvery(String duration) {
+			this.revalidateMs = Durations.parse(duration);
+			return setGlobals();
+		}
+
 		public GitHub authToken(String authToken) {
 			this.authToken = authToken;
 			return setGlobals();
 		}
 
+		/** Downloads the whole repo at this anchor as a single archive, and serves every file from that. */
+		public GitHub archive() {
+			this.archive = true;
+			return setGlobals();
+		}
+
+		/** Opens a connection to GitHub right away, so that the first download doesn't have to wait for it. */
+		public GitHub preconnect() {
+			SharedHttpClient.preconnect(build, HTTPS_PROTOCOL + (archive ? GITHUB_API_HOST : GITHUB_HOST));
+			return this;
+		}
+
 		private GitHub setGlobals() {
 			Blowdryer.setResourcePluginNull();
 			String root = HTTPS_PROTOCOL + GITHUB_HOST + "/" + repoOrg + "/" + anchor + "/";
-			Blowdryer.setResourcePlugin(resource -> root + getFullResourcePath(resource), authToken == null ? null : (url, builder) -> {
-				if (url.startsWith(root)) {
+			String archiveUrl = HTTPS_PROTOCOL + GITHUB_API_HOST + "/repos/" + repoOrg + "/zipball/" + anchor;
+			Blowdryer.ResourcePlugin plugin = archive
+					? resource -> ArchiveUrl.of(archiveUrl, true, repoSubfolder, resource)
+					: resource -> root + getFullResourcePath(resource);
+			Blowdryer.setResourcePlugin(plugin, authToken == null ? null : (url, builder) -> {
+				if (url.startsWith(root) || url.equals(archiveUrl)) {
 					builder.addHeader("Authorization", "Bearer " + authToken);
 				}
-			});
+			}, repoOrg, anchor);
+			setRevalidateEvery(revalidateMs, archive);
 			return this;
 		}
 	}
 
 	/** Sets the source where we will grab these scripts. */
 	public GitLab gitlab(String repoOrg, GitAnchorType anchorType, String anchor) {
-		// anchorType isn't used right now, but makes it easier to read what "anchor" is
-		return new GitLab(repoOrg, anchor);
+		return new GitLab(repoOrg, anchorType, anchor);
 	}
 
 	public class GitLab {
@@ -126,19 +203,40 @@ public class BlowdryerSetup {
 		private String anchor;
 		private @Nullable String authToken;
 		private String protocol, host;
+		private boolean archive;
+		private long revalidateMs;
 
-		private GitLab(String repoOrg, String anchor) {
+		private GitLab(String repoOrg, GitAnchorType anchorType, String anchor) {
 			Blowdryer.assertPluginNotSet();
 			this.repoOrg = assertNoLeadingOrTrailingSlash(repoOrg);
 			this.anchor = assertNoLeadingOrTrailingSlash(anchor);
+			this.revalidateMs = defaultRevalidateMs(anchorType);
 			customDomainHttps(GITLAB_HOST);
 		}
 
+		/** See {@link GitHub#revalidateEvery(String)}. */
+		public GitLab revalidateEvery(String duration) {
+			this.revalidateMs = Durations.parse(duration);
+			return setGlobals();
+		}
+
 		public GitLab authToken(String authToken) {
 			this.authToken = authToken;
 			return setGlobals();
 		}
 
+		/** Downloads {@link #repoSubfolder(String)} at this anchor as a single archive, and serves every file from that. */
+		public GitLab archive() {
+			this.archive = true;
+			return setGlobals();
+		}
+
+		/** Opens a connection to the GitLab host right away, so that the first download doesn't have to wait for it. */
+		public GitLab preconnect() {
+			SharedHttpClient.preconnect(build, protocol + host);
+			return this;
+		}
+
 		public GitLab customDomainHttp(String domain) {
 			return customProtocolAndDomain(HTTP_PROTOCOL, domain);
 		}
@@ -155,13 +253,19 @@ public class BlowdryerSetup {
 
 		private GitLab setGlobals() {
 			Blowdryer.setResourcePluginNull();
-			String urlStart = protocol + host + "/api/v4/projects/" + encodeUrlPart(repoOrg) + "/repository/files/";
+			String repository = protocol + host + "/api/v4/projects/" + encodeUrlPart(repoOrg) + "/repository/";
+			String urlStart = repository + "files/";
 			String urlEnd = "/raw?ref=" + encodeUrlPart(anchor);
-			Blowdryer.setResourcePlugin(resource -> urlStart + encodeUrlPart(getFullResourcePath(resource)) + urlEnd, authToken == null ? null : (url, builder) -> {
-				if (url.startsWith(urlStart)) {
+			String archiveUrl = repository + "archive.zip?sha=" + encodeUrlPart(anchor) + (repoSubfolder.isEmpty() ? "" : "&path=" + encodeUrlPart(repoSubfolder));
+			Blowdryer.ResourcePlugin plugin = archive
+					? resource -> ArchiveUrl.of(archiveUrl, true, repoSubfolder, resource)
+					: resource -> urlStart + encodeUrlPart(getFullResourcePath(resource)) + urlEnd;
+			Blowdryer.setResourcePlugin(plugin, authToken == null ? null : (url, builder) -> {
+				if (url.startsWith(repository)) {
 					builder.addHeader("Authorization", "Bearer " + authToken);
 				}
-			});
+			}, repoOrg, anchor);
+			setRevalidateEvery(revalidateMs, archive);
 			return this;
 		}
 	}
@@ -185,6 +289,8 @@ public class BlowdryerSetup {
 		private @Nullable String auth;
 		private @Nullable String authToken;
 		private String protocol, host;
+		private boolean archive;
+		private long revalidateMs;
 
 		private Bitbucket(String repoOrg, GitAnchorType anchorType, String anchor, BitbucketType bitbucketType) {
 			Blowdryer.assertPluginNotSet();
@@ -197,14 +303,33 @@ public class BlowdryerSetup {
 			this.anchorType = anchorType;
 			this.bitbucketType = bitbucketType;
 			this.anchor = assertNoLeadingOrTrailingSlash(anchor);
+			this.revalidateMs = defaultRevalidateMs(anchorType);
 			customProtocolAndDomain(BitbucketType.CLOUD, HTTPS_PROTOCOL, BITBUCKET_HOST);
 		}
 
+		/** See {@link GitHub#revalidateEvery(String)}. */
+		public Bitbucket revalidateEvery(String duration) {
+			this.revalidateMs = Durations.parse(duration);
+			return setGlobals();
+		}
+
 		public Bitbucket authToken(String auth) {
 			this.auth = auth;
 			return setGlobals();
 		}
 
+		/** Downloads the whole repo at this anchor as a single archive, and serves every file from that. */
+		public Bitbucket archive() {
+			this.archive = true;
+			return setGlobals();
+		}
+
+		/** Opens a connection to the Bitbucket host right away, so that the first download doesn't have to wait for it. */
+		public Bitbucket preconnect() {
+			SharedHttpClient.preconnect(build, protocol + host);
+			return this;
+		}
+
 		public Bitbucket customDomainHttp(String domain) {
 			return customProtocolAndDomain(BitbucketType.SERVER, HTTP_PROTOCOL, domain);
 		}
@@ -238,11 +363,15 @@ public class BlowdryerSetup {
 			}
 			Blowdryer.setResourcePluginNull();
 			String urlStart = getUrlStart();
-			Blowdryer.setResourcePlugin(resource -> getFullUrl(urlStart, encodeUrlParts(getFullResourcePath(resource))), (url, builder) -> {
+			Blowdryer.ResourcePlugin plugin = archive
+					? resource -> ArchiveUrl.of(getArchiveUrl(), !isServer(), repoSubfolder, resource)
+					: resource -> getFullUrl(urlStart, encodeUrlParts(getFullResourcePath(resource)));
+			Blowdryer.setResourcePlugin(plugin, (url, builder) -> {
 				if (authToken != null) {
 					builder.addHeader("Authorization", authToken);
 				}
-			});
+			}, repoOrg + "/" + repoName, anchor);
+			setRevalidateEvery(revalidateMs, archive);
 			return this;
 		}
 
@@ -265,6 +394,15 @@ public class BlowdryerSetup {
 			}
 		}
 
+		private String getArchiveUrl() {
+			if (isServer()) {
+				// Bitbucket Server archives have no top-level folder
+				return String.format("%s%s/rest/api/latest/projects/%s/repos/%s/archive?at=%s&format=zip", protocol, host, repoOrg, repoName, encodeUrlPart(getAnchorForServer()));
+			} else {
+				return String.format("%s%s/%s/%s/get/%s.zip", HTTPS_PROTOCOL, BITBUCKET_ARCHIVE_HOST, repoOrg, repoName, encodeUrlParts(anchor));
+			}
+		}
+
 		private boolean isServer() {
 			return BitbucketType.SERVER.equals(this.bitbucketType);
 		}
@@ -275,6 +413,8 @@ public class BlowdryerSetup {
 				return anchor;
 			case TAG:
 				return "refs/tags/" + anchor;
+			case BRANCH:
+				return "refs/heads/" + anchor;
 			default:
 				throw new UnsupportedOperationException(anchorType + " not supported for Bitbucket");
 			}
@@ -289,6 +429,9 @@ public class BlowdryerSetup {
 				anchor = getCommitHash("refs/tags/");
 				anchorType = GitAnchorType.COMMIT;
 				return anchor;
+			case BRANCH:
+				// Bitbucket Cloud takes a branch name in place of a commit
+				return anchor;
 			default:
 				throw new UnsupportedOperationException(anchorType + " not supported for Bitbucket");
 			}
@@ -297,20 +440,20 @@ public class BlowdryerSetup {
 		// Bitbucket API: https://developer.atlassian.com/bitbucket/api/2/reference/resource/repositories/%7Bworkspace%7D/%7Brepo_slug%7D/src/%7Bcommit%7D/%7Bpath%7D
 		private String getCommitHash(String baseRefs) {
 			String requestUrl = String.format("%s/%s%s", getUrlStart(), baseRefs, encodeUrlParts(anchor));
-
-			return getCommitHashFromBitbucket(requestUrl);
+			// the url holds the host, repo, and tag, so it's the key for the resolution which every build and daemon shares
+			return Blowdryer.resolveTag(requestUrl, repoOrg + "/" + repoName, anchor, () -> getCommitHashFromBitbucket(requestUrl));
 		}
 
 		@VisibleForTesting
 		String getCommitHashFromBitbucket(String requestUrl) {
-			OkHttpClient client = new OkHttpClient.Builder().build();
-			Builder requestBuilder = new Builder().url(requestUrl);
+			Blowdryer.assertOnline(build, requestUrl);
+			Builder requestBuilder = new Builder().url(requestUrl).tag(BuildState.class, build);
 			if (authToken != null) {
 				requestBuilder.addHeader("Authorization", authToken);
 			}
 			Request request = requestBuilder.build();
 
-			try (Response response = client.newCall(request).execute()) {
+			try (Response response = SharedHttpClient.get(build).newCall(request).execute()) {
 				if (!response.isSuccessful()) {
 					throw new IllegalArgumentException(String.format("%s\nreceived http code %s \n %s", request.url(), response.code(),
 							Objects.requireNonNull(response.body()).string()));
@@ -353,14 +496,26 @@ public class BlowdryerSetup {
 	 * @param jarFile Absolute path to JAR on the file system.
 	 */
 	public void localJar(File jarFile) {
+		localJar(jarFile, false);
+	}
+
+	/**
+	 * Uses the provided {@code jarFile} to extract a file resource.
+	 * @param jarFile Absolute path to JAR on the file system.
+	 * @param extractAll If true, then the first resource to be requested extracts every resource in the jar into the cache at once.
+	 */
+	public void localJar(File jarFile, boolean extractAll) {
 		Objects.requireNonNull(jarFile, "jarFile must not be null.");
 		Blowdryer.setResourcePluginNull();
 		if (!repoSubfolder.equals(REPO_SUBFOLDER_DEFAULT)) {
 			throw new IllegalArgumentException("repoSubfolder has no effect when reading from a jar, delete the call to repoSubfolder.");
 		}
 
-		String rootUrl = "file:///" + jarFile.getAbsolutePath().replace('\\', '/') + "!/";
-		Blowdryer.setResourcePlugin(resource -> rootUrl + resource);
+		String jarUrl = "file:///" + jarFile.getAbsolutePath().replace('\\', '/');
+		Blowdryer.ResourcePlugin plugin = extractAll
+				? resource -> ArchiveUrl.of(jarUrl, false, "", resource)
+				: resource -> jarUrl + "!/" + resource;
+		Blowdryer.setResourcePlugin(plugin, null, jarFile.getAbsolutePath(), null);
 	}
 
 	@NotNull
@@ -426,6 +581,13 @@ public class BlowdryerSetup {
 			add(readFile(Blowdryer.file(file)));
 		}
 
+		/** Adds each of the given files in order, after fetching them in parallel. */
+		public void files(String... files) throws IOException {
+			for (File file : Blowdryer.files(files)) {
+				add(readFile(file));
+			}
+		}
+
 		public void add(String line) {
 			totalContent.append(line.replace("\r", ""));
 			if (!line.endsWith("\n")) {
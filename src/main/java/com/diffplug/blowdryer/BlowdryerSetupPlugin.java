@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2018-2023 DiffPlug
+ * Copyright (C) 2018-2026 DiffPlug
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,17 +15,24 @@
  */
 package com.diffplug.blowdryer;
 
+import java.io.File;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.initialization.Settings;
 import org.gradle.api.provider.Provider;
+import org.gradle.util.GradleVersion;
 
 /** Gradle settings plugin which configures the source URL and version. */
 public class BlowdryerSetupPlugin implements Plugin<Settings> {
 	static final String MINIMUM_GRADLE = "6.8";
 	static final String STOP_FORUSE_AT_CONFIGURATION_TIME = "7.4";
+	/** Set to true (as a Gradle or system property) to never touch the network, just like `--offline`. */
+	static final String OFFLINE_PROPERTY = "blowdryer.offline";
+	/** Where each build writes what its resolution cost, relative to the root of the build. */
+	static final String REPORT_PATH = "build/blowdryer/report.json";
 
 	private static final Pattern BAD_SEMVER = Pattern.compile("(\\d+)\\.(\\d+)");
 
@@ -34,12 +41,28 @@ public class BlowdryerSetupPlugin implements Plugin<Settings> {
 		if (badSemver(settings.getGradle().getGradleVersion()) < badSemver(MINIMUM_GRADLE)) {
 			throw new GradleException("Blowdryer requires Gradle " + MINIMUM_GRADLE + " or newer, this was " + settings.getGradle().getGradleVersion());
 		}
-		Provider<String> tmpDir = settings.getProviders().systemProperty("java.io.tmpdir");
-		String tmpDirPath = badSemver(settings.getGradle().getGradleVersion()) >= badSemver(STOP_FORUSE_AT_CONFIGURATION_TIME) ? // depends on Gradle version
-				tmpDir.get() : // Gradle 7.4 and later
-				tmpDir.forUseAtConfigurationTime().get(); // before Gradle 7.4
-		Blowdryer.initTempDir(tmpDirPath);
-		settings.getExtensions().create(BlowdryerSetup.NAME, BlowdryerSetup.class, settings.getRootDir());
+		Blowdryer.initTempDir(atConfigurationTime(settings.getProviders().systemProperty("java.io.tmpdir")));
+		// a fresh service for every build, including each included build, so they never see each other's source
+		BlowdryerBuildService service = settings.getGradle().getSharedServices()
+				.registerIfAbsent(BlowdryerBuildService.NAME, BlowdryerBuildService.class, spec -> {}).get();
+		Blowdryer.buildStarted(settings.getRootDir(), service.state, settings.getProviders());
+		service.state.offline = settings.getStartParameter().isOffline()
+				|| Boolean.parseBoolean(atConfigurationTime(settings.getProviders().gradleProperty(OFFLINE_PROPERTY)))
+				|| Boolean.parseBoolean(atConfigurationTime(settings.getProviders().systemProperty(OFFLINE_PROPERTY)));
+		service.state.reportFile = new File(settings.getRootDir(), REPORT_PATH);
+		BlowdryerSetup setup = settings.getExtensions().create(BlowdryerSetup.NAME, BlowdryerSetup.class, settings.getRootDir());
+		settings.getGradle().settingsEvaluated(unused -> {
+			// the source is fully configured now, including its auth
+			Blowdryer.prefetchInBackground(service.state);
+			Blowdryer.collectGarbageInBackground(setup.cacheMaxBytes, setup.cacheMaxAgeMs);
+		});
+	}
+
+	/** Reads the given provider during configuration, for any provider that the configuration cache should track. */
+	static @Nullable <T> T atConfigurationTime(Provider<T> provider) {
+		return badSemver(GradleVersion.current().getVersion()) >= badSemver(STOP_FORUSE_AT_CONFIGURATION_TIME) ? // depends on Gradle version
+				provider.getOrNull() : // Gradle 7.4 and later
+				provider.forUseAtConfigurationTime().getOrNull(); // before Gradle 7.4
 	}
 
 	private static int badSemver(String input) {
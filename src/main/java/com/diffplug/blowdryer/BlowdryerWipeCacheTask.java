@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+/**
+ * Wipes only the cache entries which match every given filter, e.g.
+ * `gradlew blowdryerWipeCache --repo=acme/blowdryer-acme --anchor=v1.4.5 --dry-run`.
+ */
+public class BlowdryerWipeCacheTask extends DefaultTask {
+	private @Nullable String urlPrefix, repo, anchor, olderThan;
+	private boolean dryRun;
+
+	@Input
+	@Optional
+	public @Nullable String getUrlPrefix() {
+		return urlPrefix;
+	}
+
+	@Option(option = "url-prefix", description = "Only wipe urls which start with this prefix.")
+	public void setUrlPrefix(String urlPrefix) {
+		this.urlPrefix = urlPrefix;
+	}
+
+	@Input
+	@Optional
+	public @Nullable String getRepo() {
+		return repo;
+	}
+
+	@Option(option = "repo", description = "Only wipe files which were downloaded from this repo, e.g. acme/blowdryer-acme.")
+	public void setRepo(String repo) {
+		this.repo = repo;
+	}
+
+	@Input
+	@Optional
+	public @Nullable String getAnchor() {
+		return anchor;
+	}
+
+	@Option(option = "anchor", description = "Only wipe files which were downloaded from this tag or commit.")
+	public void setAnchor(String anchor) {
+		this.anchor = anchor;
+	}
+
+	@Input
+	@Optional
+	public @Nullable String getOlderThan() {
+		return olderThan;
+	}
+
+	@Option(option = "older-than", description = "Only wipe files which were downloaded longer ago than this, e.g. 30s, 15m, 12h, or 7d.")
+	public void setOlderThan(String olderThan) {
+		this.olderThan = olderThan;
+	}
+
+	@Input
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	@Option(option = "dry-run", description = "List what would be wiped without wiping it.")
+	public void setDryRun(boolean dryRun) {
+		this.dryRun = dryRun;
+	}
+
+	@TaskAction
+	public void wipe() {
+		if (urlPrefix == null && repo == null && anchor == null && olderThan == null) {
+			throw new IllegalArgumentException("Pass at least one of --url-prefix, --repo, --anchor, or --older-than. To wipe everything, run " + BlowdryerPlugin.WIPE_CACHE_TASK + " instead.");
+		}
+		long downloadedBefore = olderThan == null ? Long.MAX_VALUE : System.currentTimeMillis() - Durations.parse(olderThan);
+		List<String> wiped = Blowdryer.wipeCache((url, attributes) -> (urlPrefix == null || url.startsWith(urlPrefix))
+				&& (repo == null || matches(url, attributes, CacheIndex.REPO, repo))
+				&& (anchor == null || matches(url, attributes, CacheIndex.ANCHOR, anchor))
+				&& Long.parseLong(attributes.getOrDefault(CacheIndex.DOWNLOADED_AT, "0")) < downloadedBefore, dryRun);
+		for (String url : wiped) {
+			getLogger().lifecycle((dryRun ? "Would wipe " : "Wiped ") + url);
+		}
+		getLogger().lifecycle((dryRun ? "Would wipe " : "Wiped ") + wiped.size() + " cached " + (wiped.size() == 1 ? "url." : "urls."));
+	}
+
+	/** Files downloaded by older versions of Blowdryer don't record their repo or anchor, so for them we fall back to searching the url. */
+	private static boolean matches(String url, Map<String, String> attributes, String key, String value) {
+		String recorded = attributes.get(key);
+		return recorded != null ? recorded.equals(value) : url.contains(value);
+	}
+}
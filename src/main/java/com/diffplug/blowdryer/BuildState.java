@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.gradle.api.provider.ProviderFactory;
+
+/**
+ * Everything Blowdryer knows about a single build: where its resources come from, and which cached files it
+ * has checked and used so far. Each build has its own (see {@link BlowdryerBuildService}), so that included
+ * builds on different anchors don't collide, while the cached content underneath is shared by the whole JVM.
+ */
+final class BuildState {
+	volatile @Nullable Blowdryer.ResourcePlugin plugin;
+	volatile Blowdryer.AuthPlugin authPlugin = Blowdryer.AUTH_NONE;
+	/** The repo and anchor, which get recorded in the cache index next to each url this build downloads. */
+	volatile Map<String, String> source = Collections.emptyMap();
+	/** How often the source's content gets revalidated, for a mutable anchor such as a branch. */
+	volatile long revalidateMs = Blowdryer.NEVER_REVALIDATE;
+	/** The timeouts for this build's requests, see {@link SharedHttpClient#get(BuildState)}. */
+	volatile int connectTimeoutSeconds = SharedHttpClient.DEFAULT_CONNECT_TIMEOUT_SECONDS;
+	volatile int readTimeoutSeconds = SharedHttpClient.DEFAULT_READ_TIMEOUT_SECONDS;
+	/** Text content which this build adds to the cache gets stored gzipped if it's at least this big. */
+	volatile long compressMinBytes = ContentStore.NEVER_COMPRESS;
+	volatile @Nullable PrefetchManifest prefetchManifest;
+	volatile @Nullable ProviderFactory providers;
+	/** True if nothing was deleted from the cache since the previous build in this daemon, so its files can be trusted without a stat. */
+	volatile boolean warm;
+	/** True if this build must be served entirely from the cache, without touching the network. */
+	volatile boolean offline;
+	/** Where {@link #metrics} gets written once the build is finished, or null to not write it. */
+	volatile @Nullable File reportFile;
+	/** What this build's resolution cost, which lasts for the whole build, even across {@link #reset()}. */
+	final ResolutionMetrics metrics = new ResolutionMetrics();
+
+	/** The cacheKeys whose file has been checked (and touched) during this build. */
+	final Set<String> verified = ConcurrentHashMap.newKeySet();
+	/** The sha256 of every blob used by this build, which garbage collection must not evict. */
+	final Set<String> pinned = ConcurrentHashMap.newKeySet();
+	/** The urls which this build has downloaded or revalidated, so they don't need revalidating in the background. */
+	final Set<String> fetched = ConcurrentHashMap.newKeySet();
+	/** The resources which this build has recorded in its prefetch manifest and configuration cache inputs. */
+	final Set<String> recorded = ConcurrentHashMap.newKeySet();
+	/** The properties of each resource which this build has resolved, so that `prop()` skips `file()` entirely. */
+	final Map<String, Map<String, String>> resourceToProps = new ConcurrentHashMap<>();
+
+	/** Forgets the source, along with everything which was resolved from it. */
+	synchronized void reset() {
+		plugin = null;
+		authPlugin = Blowdryer.AUTH_NONE;
+		source = Collections.emptyMap();
+		revalidateMs = Blowdryer.NEVER_REVALIDATE;
+		prefetchManifest = null;
+		verified.clear();
+		pinned.clear();
+		fetched.clear();
+		recorded.clear();
+		resourceToProps.clear();
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Keeps {@link Blowdryer#cacheDir()} within a size and age budget by evicting the least-recently-used content.
+ *
+ * Last access is the mtime of a blob and its materialized files, which {@link Blowdryer} bumps the first
+ * time each file is used in a build. A collection runs at most once a day per machine, on a background
+ * thread, and never evicts content which was used within the last hour or is pinned by the current build.
+ *
+ * A compressed blob keeps its gzip, but the files inflated from it are deleted once they've gone unused for a day.
+ */
+class CacheGc {
+	static final long DEFAULT_MAX_AGE_MS = TimeUnit.DAYS.toMillis(30);
+	static final long UNLIMITED = Long.MAX_VALUE;
+
+	private static final long INTERVAL_MS = TimeUnit.DAYS.toMillis(1);
+	private static final long GRACE_MS = TimeUnit.HOURS.toMillis(1);
+	private static final long HOT_MS = TimeUnit.DAYS.toMillis(1);
+	private static final String STAMP = "gc.stamp";
+
+	private final File cacheDir;
+	private final CacheIndex index;
+	private final long maxBytes, maxAgeMs;
+	private final Predicate<String> isPinned;
+	private final Consumer<Set<String>> onDeleted;
+
+	CacheGc(File cacheDir, CacheIndex index, long maxBytes, long maxAgeMs, Predicate<String> isPinned) {
+		this(cacheDir, index, maxBytes, maxAgeMs, isPinned, deleted -> {});
+	}
+
+	/** onDeleted is called with the sha256 of every blob whose files were deleted, evicted or just trimmed. */
+	CacheGc(File cacheDir, CacheIndex index, long maxBytes, long maxAgeMs, Predicate<String> isPinned, Consumer<Set<String>> onDeleted) {
+		this.cacheDir = cacheDir;
+		this.index = index;
+		this.maxBytes = maxBytes;
+		this.maxAgeMs = maxAgeMs;
+		this.isPinned = isPinned;
+		this.onDeleted = onDeleted;
+	}
+
+	/** Starts a collection on a background thread, unless some process on this machine has done one within the last day. */
+	void maybeStartInBackground() {
+		if (System.currentTimeMillis() - new File(cacheDir, STAMP).lastModified() < INTERVAL_MS) {
+			return;
+		}
+		Thread thread = new Thread(() -> {
+			try {
+				AtomicFiles.tryLocked(new File(cacheDir, "gc.lock"), () -> {
+					// double-check, since another process might have finished a collection while we started up
+					if (System.currentTimeMillis() - new File(cacheDir, STAMP).lastModified() >= INTERVAL_MS) {
+						collect();
+					}
+					return null;
+				});
+			} catch (Exception e) {
+				System.err.println("Blowdryer cache cleanup failed, it will try again next build: " + e);
+			}
+		}, "blowdryer-cache-gc");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/** Evicts everything which is over budget, and returns the sha256 of every evicted blob. */
+	Set<String> collect() throws IOException {
+		long now = System.currentTimeMillis();
+		ContentStore store = new ContentStore(cacheDir);
+		Map<String, Long> sizes = new HashMap<>();
+		Map<String, Long> lastAccess = new HashMap<>();
+		Map<String, Long> inflatedLastAccess = new HashMap<>();
+		Set<String> compressed = new HashSet<>();
+		File[] blobs = new File(cacheDir, "blobs").listFiles();
+		if (blobs != null) {
+			for (File blob : blobs) {
+				if (blob.getName().endsWith(".tmp")) {
+					deleteIfOlderThan(blob, now - INTERVAL_MS);
+				} else {
+					String sha256 = ContentStore.sha256Of(blob);
+					sizes.merge(sha256, blob.length(), Long::sum);
+					lastAccess.merge(sha256, blob.lastModified(), Math::max);
+					if (ContentStore.isCompressed(blob)) {
+						compressed.add(sha256);
+					}
+				}
+			}
+		}
+		File[] materialized = new File(cacheDir, "files").listFiles();
+		if (materialized != null) {
+			for (File dir : materialized) {
+				String sha256 = dir.getName();
+				File[] files = dir.listFiles();
+				if (!sizes.containsKey(sha256)) {
+					// orphaned by a blob which was evicted or wiped
+					if (dir.lastModified() < now - GRACE_MS) {
+						deleteRecursively(dir);
+					}
+					continue;
+				}
+				for (File file : files == null ? new File[0] : files) {
+					lastAccess.merge(sha256, file.lastModified(), Math::max);
+					inflatedLastAccess.merge(sha256, file.lastModified(), Math::max);
+					if (file.length() > 0 && !isHardlinkOf(file, store.blob(sha256))) {
+						sizes.merge(sha256, file.length(), Long::sum);
+					}
+				}
+			}
+		}
+
+		List<String> byAge = new ArrayList<>(lastAccess.keySet());
+		byAge.sort(Comparator.comparing(lastAccess::get));
+		long totalBytes = sizes.values().stream().mapToLong(Long::longValue).sum();
+		Set<String> evicted = new HashSet<>();
+		for (String sha256 : byAge) {
+			long accessed = lastAccess.get(sha256);
+			boolean tooOld = accessed < now - maxAgeMs;
+			boolean tooBig = totalBytes > maxBytes;
+			if (!tooOld && !tooBig) {
+				break;
+			}
+			if (accessed >= now - GRACE_MS || isPinned.test(sha256)) {
+				continue;
+			}
+			evicted.add(sha256);
+			totalBytes -= sizes.get(sha256);
+		}
+		if (!evicted.isEmpty()) {
+			// first remove them from the index, so that nobody new starts using them
+			List<String> evictedUrls = new ArrayList<>();
+			for (Map.Entry<String, Map<String, String>> entry : index.entries().entrySet()) {
+				if (evicted.contains(entry.getValue().get(CacheIndex.SHA256))) {
+					evictedUrls.add(entry.getKey());
+				}
+			}
+			index.removeAll(evictedUrls);
+			for (String sha256 : evicted) {
+				if (!isPinned.test(sha256)) {
+					deleteRecursively(store.filesDir(sha256));
+					store.deleteBlob(sha256);
+				}
+			}
+		}
+		Set<String> deleted = new HashSet<>(evicted);
+		for (String sha256 : compressed) {
+			Long inflatedAccess = inflatedLastAccess.get(sha256);
+			if (inflatedAccess != null && inflatedAccess < now - HOT_MS && !evicted.contains(sha256) && !isPinned.test(sha256)) {
+				// the gzip carries the last access from now on, for the sake of future evictions
+				store.compressedBlob(sha256).setLastModified(lastAccess.get(sha256));
+				deleteRecursively(store.filesDir(sha256));
+				deleted.add(sha256);
+			}
+		}
+		if (!deleted.isEmpty()) {
+			store.bumpGeneration();
+			onDeleted.accept(deleted);
+		}
+		index.compact();
+
+		// the flat files from the cache layout before blobs/ and files/
+		// (but never locks/, because locking doesn't bump a lock file's mtime, so an old one might be held right
+		// now, and once it's deleted the next process would lock a new file and download alongside the holder)
+		File[] topLevel = cacheDir.listFiles(File::isFile);
+		for (File legacy : topLevel == null ? new File[0] : topLevel) {
+			if (!KNOWN_FILES.contains(legacy.getName())) {
+				deleteIfOlderThan(legacy, now - maxAgeMs);
+			}
+		}
+		Files.createDirectories(cacheDir.toPath());
+		Files.write(new File(cacheDir, STAMP).toPath(), new byte[0]);
+		return evicted;
+	}
+
+	private static final Set<String> KNOWN_FILES = new HashSet<>(Arrays.asList("index.bin", "index.bin.lock", "refs.bin", "refs.bin.lock", "gc.lock", STAMP, ContentStore.GENERATION));
+
+	private static boolean isHardlinkOf(File file, File blob) {
+		try {
+			return Files.isSameFile(file.toPath(), blob.toPath());
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static void deleteIfOlderThan(File file, long cutoff) {
+		if (file.lastModified() < cutoff) {
+			file.delete();
+		}
+	}
+
+	private static void deleteRecursively(File root) throws IOException {
+		if (!root.exists()) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(root.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import com.diffplug.common.base.Errors;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+
+/**
+ * A single append-only file which maps every cached url to its metadata (sha256, downloadedAt, etc).
+ *
+ * It is read once per JVM, and after that every lookup is in-memory. Other
+ * processes append to the same file, so {@link #refresh()} reads whatever they added since we last
+ * looked. Each record is `magic, length, crc32, payload`, so a record which is partial (a process
+ * died mid-write) or corrupt gets skipped rather than failing the build.
+ */
+class CacheIndex {
+	static final String SHA256 = "sha256";
+	static final String DOWNLOADED_AT = "downloadedAt";
+	static final String REPO = "repo";
+	static final String ANCHOR = "anchor";
+	/** Only for urls whose content can change, see {@link Blowdryer#setRevalidateEvery(long)}. */
+	static final String VALIDATED_AT = "validatedAt";
+	static final String ETAG = "etag";
+	static final String LAST_MODIFIED = "lastModified";
+	/**
+	 * Only on the entry for an {@link ArchiveUrl#root()}, the sha256 of the archive. It means every file in the archive
+	 * is in the index, so that a url under the root which isn't in the index doesn't exist.
+	 */
+	static final String ARCHIVE = "archive";
+	/** Only in {@link Blowdryer#refs()}, the commit which a tag resolved to. */
+	static final String COMMIT = "commit";
+
+	private static final int MAGIC = 0xB10D_1DE7;
+	private static final int HEADER_BYTES = 12;
+	private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+
+	private final File file;
+	/** Replaced wholesale when the file is replaced, so that lock-free readers never see it half-loaded. */
+	private volatile Map<String, Map<String, String>> entries = new ConcurrentHashMap<>();
+	private volatile boolean loaded = false;
+	/** How far into the file we've read, and which file it was, so that we notice if it gets replaced. */
+	private long readUpTo = 0;
+	private @Nullable Object readFileKey;
+
+	CacheIndex(File file) {
+		this.file = Objects.requireNonNull(file);
+	}
+
+	/** Returns the metadata for the given url, or null if it isn't in the cache. */
+	@Nullable
+	Map<String, String> get(String url) {
+		if (!loaded) {
+			refresh();
+		}
+		return entries.get(url);
+	}
+
+	/** Returns a snapshot of every entry in the index. */
+	Map<String, Map<String, String>> entries() {
+		if (!loaded) {
+			refresh();
+		}
+		return Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+	}
+
+	/** Reads every record which has been appended since the last time we read. */
+	synchronized void refresh() {
+		try {
+			if (!file.exists()) {
+				entries = new ConcurrentHashMap<>();
+				readUpTo = 0;
+				readFileKey = null;
+				return;
+			}
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			Object fileKey = attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+			if (!fileKey.equals(readFileKey) || attributes.size() < readUpTo) {
+				// another process compacted the index (or wiped the whole cache), so we read the new file
+				// into a new map, and readers keep using the old one until it's complete
+				Map<String, Map<String, String>> reread = new ConcurrentHashMap<>();
+				readUpTo = read(reread, 0, attributes.size());
+				readFileKey = fileKey;
+				entries = reread;
+			} else if (attributes.size() > readUpTo) {
+				readUpTo += read(entries, readUpTo, attributes.size());
+			}
+		} catch (IOException e) {
+			throw Errors.asRuntime(e);
+		} finally {
+			loaded = true;
+		}
+	}
+
+	/** Reads the records between the given offsets into the given map, and returns how many bytes were consumed. */
+	private int read(Map<String, Map<String, String>> into, long from, long to) throws IOException {
+		if (to <= from) {
+			return 0;
+		}
+		// read rather than mapped, because Windows won't replace or move a file while any process still maps it,
+		// which would block compact() and wiping the cache, and the records get copied out of the buffer anyway
+		ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(to - from));
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, from + buffer.position()) == -1) {
+					// truncated since we looked at its size, so parse whatever is there
+					buffer.limit(buffer.position());
+				}
+			}
+		}
+		buffer.flip();
+		return parse(buffer, into);
+	}
+
+	/** Parses every complete record in the buffer into the given map, and returns how many bytes were consumed. */
+	private static int parse(ByteBuffer buffer, Map<String, Map<String, String>> into) {
+		int start = 0;
+		while (buffer.limit() - start >= HEADER_BYTES) {
+			int length = recordLength(buffer, start);
+			if (length >= 0) {
+				byte[] payload = new byte[length];
+				buffer.position(start + HEADER_BYTES);
+				buffer.get(payload);
+				try {
+					readRecord(payload, into);
+				} catch (IOException e) {
+					// the crc matched but the content didn't, so it was written by some future version, ignore it
+				}
+				start += HEADER_BYTES + length;
+			} else if (length == INCOMPLETE && !validRecordAfter(buffer, start)) {
+				// maybe another process is still writing it, so we'll read it next time
+				break;
+			} else {
+				// corrupt, or a partial record which will never be finished, skip ahead to the next record
+				++start;
+			}
+		}
+		return start;
+	}
+
+	private static final int CORRUPT = -1, INCOMPLETE = -2;
+
+	/** Returns the payload length of the record at the given position, or {@link #CORRUPT} or {@link #INCOMPLETE}. */
+	private static int recordLength(ByteBuffer buffer, int start) {
+		if (buffer.getInt(start) != MAGIC) {
+			return CORRUPT;
+		}
+		int length = buffer.getInt(start + 4);
+		if (length < 0 || length > MAX_PAYLOAD_BYTES) {
+			return CORRUPT;
+		} else if (buffer.limit() - start - HEADER_BYTES < length) {
+			return INCOMPLETE;
+		}
+		byte[] payload = new byte[length];
+		buffer.position(start + HEADER_BYTES);
+		buffer.get(payload);
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+		return (int) crc.getValue() == buffer.getInt(start + 8) ? length : CORRUPT;
+	}
+
+	private static boolean validRecordAfter(ByteBuffer buffer, int start) {
+		for (int i = start + 1; buffer.limit() - i >= HEADER_BYTES; ++i) {
+			if (recordLength(buffer, i) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void readRecord(byte[] payload, Map<String, Map<String, String>> into) throws IOException {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+		String url = input.readUTF();
+		int numAttributes = input.readUnsignedShort();
+		if (numAttributes == 0) {
+			into.remove(url);
+		} else {
+			Map<String, String> attributes = new LinkedHashMap<>(numAttributes * 2);
+			for (int i = 0; i < numAttributes; ++i) {
+				attributes.put(input.readUTF(), input.readUTF());
+			}
+			into.put(url, Collections.unmodifiableMap(attributes));
+		}
+	}
+
+	/** Appends an entry for the given url, replacing any previous entry. */
+	void put(String url, Map<String, String> attributes) {
+		if (attributes.isEmpty()) {
+			throw new IllegalArgumentException("An entry needs at least one attribute");
+		}
+		append(url, attributes);
+	}
+
+	/** Appends an entry for each of the given urls, in a single write. */
+	void putAll(Map<String, Map<String, String>> entries) {
+		try {
+			ByteArrayOutputStream records = new ByteArrayOutputStream();
+			for (Map.Entry<String, Map<String, String>> entry : entries.entrySet()) {
+				if (entry.getValue().isEmpty()) {
+					throw new IllegalArgumentException("An entry needs at least one attribute");
+				}
+				records.write(encode(entry.getKey(), entry.getValue()));
+			}
+			append(records.toByteArray());
+		} catch (IOException e) {
+			throw Errors.asRuntime(e);
+		}
+	}
+
+	/** Appends a tombstone for the given url. */
+	void remove(String url) {
+		append(url, Collections.emptyMap());
+	}
+
+	/**
+	 * Appends a tombstone for each of the given urls in a single write, along with one for the {@link #ARCHIVE}
+	 * entry of each archive they were extracted from, since the index doesn't have all of its files anymore.
+	 */
+	void removeAll(Collection<String> urls) {
+		if (urls.isEmpty()) {
+			return;
+		}
+		Set<String> removed = new LinkedHashSet<>(urls);
+		for (Map.Entry<String, Map<String, String>> entry : entries().entrySet()) {
+			if (entry.getValue().containsKey(ARCHIVE) && urls.stream().anyMatch(url -> url.startsWith(entry.getKey()))) {
+				removed.add(entry.getKey());
+			}
+		}
+		try {
+			ByteArrayOutputStream records = new ByteArrayOutputStream();
+			for (String url : removed) {
+				records.write(encode(url, Collections.emptyMap()));
+			}
+			append(records.toByteArray());
+		} catch (IOException e) {
+			throw Errors.asRuntime(e);
+		}
+	}
+
+	private void append(String url, Map<String, String> attributes) {
+		try {
+			append(encode(url, attributes));
+		} catch (IOException e) {
+			throw Errors.asRuntime(e);
+		}
+	}
+
+	private void append(byte[] records) {
+		try {
+			ByteBuffer record = ByteBuffer.wrap(records);
+			synchronized (this) {
+				AtomicFiles.locked(lockFile(), () -> {
+					try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+						while (record.hasRemaining()) {
+							channel.write(record);
+						}
+					}
+					return null;
+				});
+				// picks up our own record, along with anything other processes appended
+				refresh();
+			}
+		} catch (Exception e) {
+			throw Errors.asRuntime(e);
+		}
+	}
+
+	/**
+	 * Rewrites the index without its replaced entries, tombstones, and corrupt records, if they
+	 * take up more than half of the file. Other processes notice the new file on their next refresh.
+	 */
+	synchronized void compact() {
+		try {
+			AtomicFiles.locked(lockFile(), () -> {
+				refresh();
+				ByteArrayOutputStream compacted = new ByteArrayOutputStream();
+				for (Map.Entry<String, Map<String, String>> entry : entries.entrySet()) {
+					compacted.write(encode(entry.getKey(), entry.getValue()));
+				}
+				if (file.exists() && compacted.size() * 2 < file.length()) {
+					AtomicFiles.write(file, compacted.toByteArray());
+					refresh();
+				}
+				return null;
+			});
+		} catch (Exception e) {
+			throw Errors.asRuntime(e);
+		}
+	}
+
+	private File lockFile() {
+		return new File(file.getParentFile(), file.getName() + ".lock");
+	}
+
+	private static byte[] encode(String url, Map<String, String> attributes) throws IOException {
+		ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+		DataOutputStream payload = new DataOutputStream(payloadBytes);
+		payload.writeUTF(url);
+		payload.writeShort(attributes.size());
+		for (Map.Entry<String, String> entry : attributes.entrySet()) {
+			payload.writeUTF(entry.getKey());
+			payload.writeUTF(entry.getValue());
+		}
+		byte[] content = payloadBytes.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(content, 0, content.length);
+		ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + content.length);
+		record.putInt(MAGIC).putInt(content.length).putInt((int) crc.getValue()).put(content);
+		return record.array();
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-addressed storage underneath {@link Blowdryer#cacheDir()}.
+ *
+ * - `blobs/<sha256>` holds the bytes, stored exactly once no matter how many urls point at them
+ * - `blobs/<sha256>.gz` instead, for big text content if the store was created with a `compressMinBytes`
+ * - `files/<sha256>/<name>` are the files we hand out, hardlinked to the blob where the filesystem allows it,
+ *   or inflated from it if it's compressed, in which case {@link CacheGc} trims them once they go cold
+ * - `generation` changes whenever anything gets deleted, see {@link #generation()}
+ */
+class ContentStore {
+	static final long NEVER_COMPRESS = Long.MAX_VALUE;
+	private static final String GZ = ".gz";
+	private static final int TEXT_SNIFF_BYTES = 8 * 1024;
+
+	static final String GENERATION = "generation";
+
+	private final File blobs, files, generation;
+	private final long compressMinBytes;
+
+	/** A store which never compresses what gets added to it. */
+	ContentStore(File cacheDir) {
+		this(cacheDir, NEVER_COMPRESS);
+	}
+
+	/** Blobs which are at least compressMinBytes big, and look like text, get stored gzipped. */
+	ContentStore(File cacheDir, long compressMinBytes) {
+		this.blobs = new File(cacheDir, "blobs");
+		this.files = new File(cacheDir, "files");
+		this.generation = new File(cacheDir, GENERATION);
+		this.compressMinBytes = compressMinBytes;
+	}
+
+	/**
+	 * Returns a token which changes whenever content is deleted from the store, by any process, so that a daemon
+	 * can tell with a single read whether every file it remembers from an earlier build is still there.
+	 */
+	String generation() throws IOException {
+		if (!generation.isFile()) {
+			// a brand-new cache, or one which was just wiped entirely
+			bumpGeneration();
+		}
+		try {
+			return new String(Files.readAllBytes(generation.toPath()), StandardCharsets.UTF_8);
+		} catch (NoSuchFileException e) {
+			return "";
+		}
+	}
+
+	/** Must be called after deleting anything which a daemon might have handed out already. */
+	void bumpGeneration() throws IOException {
+		AtomicFiles.write(generation, UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/** Returns a fresh temp file which can be passed to {@link #add(File, String)} once it has been written. */
+	File newTempFile() throws IOException {
+		Files.createDirectories(blobs.toPath());
+		return File.createTempFile("download", ".tmp", blobs);
+	}
+
+	/** Returns the blob for the given hash, which might not exist. */
+	File blob(String sha256) {
+		return new File(blobs, sha256);
+	}
+
+	/** Returns the gzipped blob for the given hash, which might not exist. */
+	File compressedBlob(String sha256) {
+		return new File(blobs, sha256 + GZ);
+	}
+
+	/** Returns the hash of the content in the given blob file, compressed or not. */
+	static String sha256Of(File blob) {
+		String name = blob.getName();
+		return name.endsWith(GZ) ? name.substring(0, name.length() - GZ.length()) : name;
+	}
+
+	static boolean isCompressed(File blob) {
+		return blob.getName().endsWith(GZ);
+	}
+
+	/** Returns the folder which holds every materialized copy of the given blob. */
+	File filesDir(String sha256) {
+		return new File(files, sha256);
+	}
+
+	/** Returns true if the store has content for the given hash. */
+	boolean contains(String sha256) {
+		return blob(sha256).isFile() || compressedBlob(sha256).isFile();
+	}
+
+	/** Moves the given temp file into the store, or deletes it if the store already had that content. */
+	void add(File tempFile, String sha256) throws IOException {
+		if (contains(sha256)) {
+			Files.delete(tempFile.toPath());
+		} else if (tempFile.length() >= compressMinBytes && looksLikeText(tempFile)) {
+			File gzipped = newTempFile();
+			try {
+				try (InputStream input = Files.newInputStream(tempFile.toPath());
+						OutputStream output = new GZIPOutputStream(Files.newOutputStream(gzipped.toPath()))) {
+					copy(input, output);
+				}
+				AtomicFiles.move(gzipped, compressedBlob(sha256));
+				Files.delete(tempFile.toPath());
+			} finally {
+				Files.deleteIfExists(gzipped.toPath());
+			}
+		} else {
+			AtomicFiles.move(tempFile, blob(sha256));
+		}
+	}
+
+	/** Deletes the given blob, whether it's compressed or not. */
+	void deleteBlob(String sha256) throws IOException {
+		Files.deleteIfExists(blob(sha256).toPath());
+		Files.deleteIfExists(compressedBlob(sha256).toPath());
+	}
+
+	/** Binary formats (jars, images, zips) are compressed already, and they have NUL bytes where text doesn't. */
+	private static boolean looksLikeText(File file) throws IOException {
+		byte[] sniff = new byte[TEXT_SNIFF_BYTES];
+		int read;
+		try (InputStream input = Files.newInputStream(file.toPath())) {
+			read = input.read(sniff);
+		}
+		for (int i = 0; i < read; ++i) {
+			if (sniff[i] == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void copy(InputStream input, OutputStream output) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		int read;
+		while ((read = input.read(buffer)) != -1) {
+			output.write(buffer, 0, read);
+		}
+	}
+
+	/** Returns a file with the given name and the content of the given blob, which must exist. */
+	File materialize(String sha256, String name) throws IOException {
+		File dst = new File(filesDir(sha256), name);
+		if (dst.isFile()) {
+			return dst;
+		}
+		Files.createDirectories(dst.getParentFile().toPath());
+		File compressed = compressedBlob(sha256);
+		if (!blob(sha256).isFile() && compressed.isFile()) {
+			File inflating = File.createTempFile(name, ".tmp", dst.getParentFile());
+			try {
+				try (InputStream input = new GZIPInputStream(Files.newInputStream(compressed.toPath()));
+						OutputStream output = Files.newOutputStream(inflating.toPath())) {
+					copy(input, output);
+				}
+				AtomicFiles.move(inflating, dst);
+			} finally {
+				Files.deleteIfExists(inflating.toPath());
+			}
+			return dst;
+		}
+		try {
+			Files.createLink(dst.toPath(), blob(sha256).toPath());
+		} catch (FileAlreadyExistsException e) {
+			// someone else materialized it first, and the content is the same by definition
+		} catch (UnsupportedOperationException | IOException e) {
+			// no hardlinks on this filesystem (or across these directories), fallback to a copy, which
+			// Files.copy does in the kernel (and recent JDKs clone on filesystems which support reflinks)
+			AtomicFiles.copy(blob(sha256), dst);
+		}
+		return dst;
+	}
+}
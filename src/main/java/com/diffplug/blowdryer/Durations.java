@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** The durations which the DSL and the tasks accept, such as `revalidateEvery` and `--older-than`. */
+class Durations {
+	private Durations() {}
+
+	private static final Pattern DURATION = Pattern.compile("(\\d+)([smhd])");
+
+	/** Parses durations such as `30s`, `15m`, `12h`, or `7d` into milliseconds. */
+	static long parse(String duration) {
+		Matcher matcher = DURATION.matcher(duration.trim());
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException("Expected a duration such as 30s, 15m, 12h, or 7d, but was '" + duration + "'");
+		}
+		long amount = Long.parseLong(matcher.group(1));
+		switch (matcher.group(2)) {
+		case "s":
+			return TimeUnit.SECONDS.toMillis(amount);
+		case "m":
+			return TimeUnit.MINUTES.toMillis(amount);
+		case "h":
+			return TimeUnit.HOURS.toMillis(amount);
+		default:
+			return TimeUnit.DAYS.toMillis(amount);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs fetches in parallel, at most {@link #MAX_PARALLEL} at a time so that we don't hammer the server.
+ * On JDK 21+ each fetch gets its own virtual thread, otherwise they share a pool of daemon threads
+ * which shrinks to nothing when idle.
+ */
+class FetchExecutor {
+	static final int MAX_PARALLEL = 8;
+
+	private FetchExecutor() {}
+
+	private static volatile Executor executor;
+
+	static Executor executor() {
+		Executor result = executor;
+		if (result == null) {
+			synchronized (FetchExecutor.class) {
+				result = executor;
+				if (result == null) {
+					result = create();
+					executor = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static Executor create() {
+		try {
+			// reflection because we compile against Java 8
+			ExecutorService virtual = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			Semaphore permits = new Semaphore(MAX_PARALLEL);
+			return task -> virtual.execute(() -> {
+				permits.acquireUninterruptibly();
+				try {
+					task.run();
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (ReflectiveOperationException e) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_PARALLEL, MAX_PARALLEL, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+				Thread thread = new Thread(runnable, "blowdryer-fetch");
+				thread.setDaemon(true);
+				return thread;
+			});
+			pool.allowCoreThreadTimeOut(true);
+			return pool;
+		}
+	}
+
+	/** Applies the function to every input in parallel, and returns one future per input, in input order. */
+	static <T, R> List<CompletableFuture<R>> submitAll(List<T> inputs, Function<T, R> function) {
+		return inputs.stream()
+				.map(input -> CompletableFuture.supplyAsync(() -> function.apply(input), executor()))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Applies the function to every input in parallel, and returns the results in input order.
+	 * If any of them fail, it waits for all of them and then throws one exception which lists every failure.
+	 */
+	static <T, R> List<R> mapAll(List<T> inputs, Function<T, R> function) {
+		List<CompletableFuture<R>> futures = submitAll(inputs, function);
+		List<R> results = new ArrayList<>(inputs.size());
+		List<String> failures = new ArrayList<>();
+		List<Throwable> causes = new ArrayList<>();
+		for (int i = 0; i < futures.size(); ++i) {
+			try {
+				results.add(futures.get(i).join());
+			} catch (CompletionException e) {
+				failures.add("  " + inputs.get(i) + ": " + e.getCause().getMessage());
+				causes.add(e.getCause());
+			}
+		}
+		if (!failures.isEmpty()) {
+			IllegalArgumentException e = new IllegalArgumentException("Failed to fetch " + failures.size() + " of " + inputs.size() + ":\n" + String.join("\n", failures));
+			causes.forEach(e::addSuppressed);
+			throw e;
+		}
+		return results;
+	}
+}
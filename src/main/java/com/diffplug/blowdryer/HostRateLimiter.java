@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * A token bucket per host, shared by every request in the JVM, so that parallel fetches slow down together
+ * rather than each of them hammering a host which is about to throttle (or already is throttling) us.
+ *
+ * A host is unlimited until it tells us otherwise. Once its `RateLimit-Remaining` (GitLab) or
+ * `X-RateLimit-Remaining` (GitHub) falls below a fifth of its limit, or it sends `X-RateLimit-NearLimit`
+ * (Bitbucket), the remaining requests are spread evenly until the limit resets. A `Retry-After`, either
+ * in seconds or as an HTTP-date, holds back every request to that host until then, not just the one which got it.
+ */
+class HostRateLimiter {
+	static final long DEFAULT_RETRY_MS = 100;
+	static final long MAX_WAIT_MS = 90_000;
+	/** Without a limit to take a fifth of, we start slowing down at this many remaining requests. */
+	private static final long NEAR_LIMIT_REMAINING = 50;
+	/** How long we assume a window lasts, if the host says we're near its limit but not when the limit resets. */
+	private static final long DEFAULT_WINDOW_SECONDS = 60;
+	/** Epoch seconds are all bigger than this, and a delta in seconds never is. */
+	private static final long EPOCH_SECONDS_CUTOFF = 1_000_000_000L;
+	private static final double UNLIMITED = Double.POSITIVE_INFINITY;
+	private static final double BURST = FetchExecutor.MAX_PARALLEL;
+
+	private static final Map<String, HostRateLimiter> byHost = new ConcurrentHashMap<>();
+
+	/** Returns the limiter which every request to the given host (and port) shares. */
+	static HostRateLimiter forHost(String hostAndPort) {
+		return byHost.computeIfAbsent(hostAndPort, unused -> new HostRateLimiter());
+	}
+
+	/** Requests per second, or {@link #UNLIMITED}. */
+	private double rate = UNLIMITED;
+	private double tokens = BURST;
+	private long lastRefillNanos = System.nanoTime();
+	private long blockedUntilNanos = Long.MIN_VALUE;
+
+	/** Takes a token for one request, and returns how many nanos the caller must wait before sending it. */
+	synchronized long reserve(long nowNanos) {
+		refill(nowNanos);
+		long wait = nowNanos < blockedUntilNanos ? blockedUntilNanos - nowNanos : 0;
+		if (rate != UNLIMITED) {
+			// the token is taken now even if it isn't there yet, so the next caller queues up behind this one
+			tokens -= 1;
+			if (tokens < 0) {
+				wait = Math.max(wait, (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1)));
+			}
+		}
+		return wait;
+	}
+
+	private void refill(long nowNanos) {
+		if (rate == UNLIMITED) {
+			tokens = BURST;
+		} else {
+			tokens = Math.min(BURST, tokens + Math.max(0, nowNanos - lastRefillNanos) * rate / TimeUnit.SECONDS.toNanos(1));
+		}
+		lastRefillNanos = nowNanos;
+	}
+
+	/** Holds back every request to this host until the given number of millis from now. */
+	synchronized void blockFor(long nowNanos, long millis) {
+		blockedUntilNanos = Math.max(blockedUntilNanos, nowNanos + TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+
+	/** Adjusts the rate to whatever the host's rate-limit headers say about its remaining budget. */
+	synchronized void observe(long nowNanos, long nowEpochMillis, Function<String, String> headers) {
+		Long remaining = firstLong(headers, "RateLimit-Remaining", "X-RateLimit-Remaining");
+		Long limit = firstLong(headers, "RateLimit-Limit", "X-RateLimit-Limit");
+		Long reset = firstLong(headers, "RateLimit-Reset", "X-RateLimit-Reset");
+		boolean nearLimit = "true".equalsIgnoreCase(headers.apply("X-RateLimit-NearLimit"));
+		if (remaining == null && !nearLimit) {
+			return;
+		}
+		long windowSeconds = DEFAULT_WINDOW_SECONDS;
+		if (reset != null) {
+			windowSeconds = reset > EPOCH_SECONDS_CUTOFF ? reset - TimeUnit.MILLISECONDS.toSeconds(nowEpochMillis) : reset;
+			windowSeconds = Math.max(1, Math.min(windowSeconds, TimeUnit.MILLISECONDS.toSeconds(MAX_WAIT_MS)));
+		}
+		refill(nowNanos);
+		if (remaining != null && remaining <= 0) {
+			// spent, so nothing more until the window resets
+			rate = 1.0 / windowSeconds;
+			tokens = 0;
+			blockFor(nowNanos, TimeUnit.SECONDS.toMillis(windowSeconds));
+		} else if (nearLimit || remaining < (limit == null ? NEAR_LIMIT_REMAINING : limit / 5)) {
+			// Bitbucket only says that we're near, not how near
+			double budget = remaining == null ? NEAR_LIMIT_REMAINING : remaining;
+			rate = budget / windowSeconds;
+			tokens = Math.min(tokens, budget);
+		} else {
+			rate = UNLIMITED;
+		}
+	}
+
+	@Nullable
+	private static Long firstLong(Function<String, String> headers, String... names) {
+		for (String name : names) {
+			String value = headers.apply(name);
+			if (value != null) {
+				try {
+					// IETF drafts allow `limit, limit;w=60` here, the first number is the one which applies
+					int end = 0;
+					String trimmed = value.trim();
+					while (end < trimmed.length() && Character.isDigit(trimmed.charAt(end))) {
+						++end;
+					}
+					return Long.parseLong(trimmed.substring(0, end));
+				} catch (NumberFormatException e) {
+					// not a number, try the next one
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Parses a `Retry-After` header, which is either a number of seconds or an HTTP-date, into millis from now.
+	 * Returns {@link #DEFAULT_RETRY_MS} if it's missing, unparseable or in the past, and never more than {@link #MAX_WAIT_MS}.
+	 */
+	static long retryAfterMillis(@Nullable String retryAfter, long nowEpochMillis) {
+		long millis = DEFAULT_RETRY_MS;
+		if (retryAfter != null) {
+			String trimmed = retryAfter.trim();
+			try {
+				millis = TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed));
+			} catch (NumberFormatException notSeconds) {
+				try {
+					millis = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME.withLocale(Locale.US)).toInstant().toEpochMilli() - nowEpochMillis;
+				} catch (DateTimeParseException notDate) {
+					// neither, so we use the default
+				}
+			}
+		}
+		if (millis <= 0) {
+			return DEFAULT_RETRY_MS;
+		}
+		return Math.min(millis, MAX_WAIT_MS);
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+
+import javax.annotation.Nullable;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+
+/**
+ * The configuration cache input for each resource that {@link Blowdryer#file(String)} resolves, keyed on its
+ * immutable url, whose value is the sha256 of the content which configuration used. When Gradle checks whether a
+ * cached configuration is still valid, this only looks the url up in the local cache, so a hit costs no downloads,
+ * and content which has changed or is missing from disk is a miss which re-runs configuration (and the download).
+ * A resource from a mutable source which is due for revalidation is a miss too, since only configuration has the
+ * auth to revalidate it. Not intended for use outside of Blowdryer.
+ */
+public abstract class ImmutableUrlSource implements ValueSource<String, ImmutableUrlSource.Params> {
+	public interface Params extends ValueSourceParameters {
+		Property<String> getTempDir();
+
+		Property<String> getUrl();
+
+		Property<String> getRequiredSuffix();
+
+		/** The content which configuration used. */
+		Property<String> getSha256();
+
+		/** For a mutable source, so that a cached configuration gets checked again once its content is due for revalidation. */
+		Property<Long> getRevalidateMs();
+
+		/** When configuration used the content, which revalidated it if it was stale. */
+		Property<Long> getResolvedAt();
+	}
+
+	@Override
+	public @Nullable String obtain() {
+		Blowdryer.initTempDir(getParameters().getTempDir().get());
+		return Blowdryer.currentSha256OrNull(getParameters().getUrl().get(), getParameters().getRequiredSuffix().getOrNull(), getParameters().getSha256().get(),
+				getParameters().getRevalidateMs().getOrElse(Blowdryer.NEVER_REVALIDATE), getParameters().getResolvedAt().get());
+	}
+}
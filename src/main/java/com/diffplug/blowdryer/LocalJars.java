@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipFile;
+
+/**
+ * Keeps each `localJar` open for the life of the JVM, so that its central directory is parsed once, and
+ * every lookup after that is a hash lookup. A jar which changes on disk (by mtime or size) gets reopened.
+ *
+ * Windows won't let anyone replace a file which is open, so there we open the jar for each read instead.
+ */
+class LocalJars {
+	private LocalJars() {}
+
+	private static final boolean KEEP_OPEN = !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("windows");
+	private static final Map<File, OpenJar> openJars = new ConcurrentHashMap<>();
+
+	@FunctionalInterface
+	interface JarReader<T> {
+		T read(ZipFile jar) throws IOException;
+	}
+
+	/** Calls the given reader with the given jar. */
+	static <T> T read(File jarFile, JarReader<T> reader) throws IOException {
+		if (!KEEP_OPEN) {
+			try (ZipFile jar = new ZipFile(jarFile)) {
+				return reader.read(jar);
+			}
+		}
+		OpenJar jar = acquire(jarFile);
+		try {
+			return reader.read(jar.zip);
+		} finally {
+			jar.release();
+		}
+	}
+
+	private static OpenJar acquire(File jarFile) throws IOException {
+		long lastModified = jarFile.lastModified();
+		long length = jarFile.length();
+		while (true) {
+			OpenJar current = openJars.get(jarFile);
+			if (current != null && current.isUpToDate(lastModified, length) && current.tryAcquire()) {
+				return current;
+			}
+			synchronized (openJars) {
+				current = openJars.get(jarFile);
+				if (current != null && current.isUpToDate(lastModified, length)) {
+					// another thread reopened it while we waited for the lock
+					continue;
+				}
+				OpenJar reopened = new OpenJar(new ZipFile(jarFile), lastModified, length);
+				reopened.tryAcquire();
+				openJars.put(jarFile, reopened);
+				if (current != null) {
+					current.retire();
+				}
+				return reopened;
+			}
+		}
+	}
+
+	/** A jar which stays open until it has been replaced and every reader which was using it is done. */
+	private static class OpenJar {
+		final ZipFile zip;
+		final long lastModified, length;
+		private int readers = 0;
+		private boolean retired = false;
+
+		OpenJar(ZipFile zip, long lastModified, long length) {
+			this.zip = zip;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		boolean isUpToDate(long lastModified, long length) {
+			return this.lastModified == lastModified && this.length == length;
+		}
+
+		synchronized boolean tryAcquire() {
+			if (retired) {
+				return false;
+			}
+			++readers;
+			return true;
+		}
+
+		synchronized void release() throws IOException {
+			if (--readers == 0 && retired) {
+				zip.close();
+			}
+		}
+
+		synchronized void retire() throws IOException {
+			retired = true;
+			if (readers == 0) {
+				zip.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import com.diffplug.common.base.Errors;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The resource paths which builds have resolved from a given repo, one per line, so that the next
+ * build can fetch all of them in parallel as soon as its source is configured. It's kept per repo
+ * rather than per anchor, so that bumping the anchor prefetches everything the old anchor used, and
+ * a path which fails to prefetch (e.g. it doesn't exist at the new anchor) is {@link #forget forgotten}.
+ */
+class PrefetchManifest {
+	private final File file;
+	private final Set<String> recorded = ConcurrentHashMap.newKeySet();
+	private volatile boolean loaded = false;
+
+	PrefetchManifest(File file) {
+		this.file = file;
+	}
+
+	/** Returns every resource path which has been recorded, by any build on this machine. */
+	synchronized List<String> resources() {
+		load();
+		return new ArrayList<>(recorded);
+	}
+
+	/** Records the given resource path, which costs a write only the first time it's seen. */
+	void record(String resourcePath) {
+		if (!loaded) {
+			synchronized (this) {
+				load();
+			}
+		}
+		if (resourcePath.indexOf('\n') != -1 || !recorded.add(resourcePath)) {
+			return;
+		}
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			// a single short append is atomic enough, and duplicates from racing processes are harmless
+			Files.write(file.toPath(), (resourcePath + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		} catch (IOException e) {
+			throw Errors.asRuntime(e);
+		}
+	}
+
+	/** Removes the given resource paths, so that later builds don't prefetch them anymore. */
+	synchronized void forget(Collection<String> resourcePaths) {
+		load();
+		if (!recorded.removeAll(resourcePaths)) {
+			return;
+		}
+		try {
+			// keep whatever other processes appended since we loaded, the ones which race the rewrite
+			// are lost, but it's only a hint and their builds will record them again
+			Set<String> remaining = new LinkedHashSet<>();
+			if (file.exists()) {
+				remaining.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+			}
+			remaining.addAll(recorded);
+			remaining.removeAll(resourcePaths);
+			remaining.remove("");
+			StringBuilder content = new StringBuilder();
+			for (String resourcePath : remaining) {
+				content.append(resourcePath).append('\n');
+			}
+			AtomicFiles.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			// it's only a hint, we'll try again next build
+		}
+	}
+
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		try {
+			if (file.exists()) {
+				for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+					if (!line.isEmpty()) {
+						recorded.add(line);
+					}
+				}
+			}
+		} catch (IOException e) {
+			// it's only a hint, a build without it is just slower
+		} finally {
+			loaded = true;
+		}
+	}
+}
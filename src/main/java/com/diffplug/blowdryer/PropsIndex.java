@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import com.diffplug.common.base.Errors;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * A `.properties` file from the cache, compiled once into a binary hash table which sits next to it
+ * in `files/<sha256>/`, and read back through a memory map. Every JVM on the machine shares the compiled
+ * file, and since the folder is named by the content's hash, the table can't go stale.
+ *
+ * The layout is a header (`magic, count, slots`), then `slots` offsets (open addressing on
+ * {@link String#hashCode()}, -1 for empty), then each entry as `keyLength, key, valueLength, value` in UTF-8.
+ */
+class PropsIndex extends AbstractMap<String, String> {
+	static final String FILENAME = ".properties.idx";
+
+	private static final int MAGIC = 0xB10D_9A95;
+	private static final int HEADER_BYTES = 12;
+	private static final int EMPTY = -1;
+	/** Windows won't delete a file which is mapped, and these get evicted along with their content. */
+	private static final boolean MAP = !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("windows");
+
+	/** Returns the properties in the given cached file, compiling its index first if no JVM has yet. */
+	static PropsIndex of(File propertiesFile) {
+		File indexFile = new File(propertiesFile.getParentFile(), FILENAME);
+		try {
+			if (indexFile.isFile()) {
+				ByteBuffer buffer = read(indexFile);
+				if (isValid(buffer)) {
+					return new PropsIndex(buffer);
+				}
+			}
+			byte[] compiled = compile(propertiesFile);
+			AtomicFiles.write(indexFile, compiled);
+			return new PropsIndex(ByteBuffer.wrap(compiled));
+		} catch (IOException e) {
+			throw Errors.asRuntime(e);
+		}
+	}
+
+	private static ByteBuffer read(File indexFile) throws IOException {
+		if (!MAP) {
+			return ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+		}
+		try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/** A truncated or foreign file gets recompiled rather than trusted. */
+	private static boolean isValid(ByteBuffer buffer) {
+		if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			return false;
+		}
+		int slots = buffer.getInt(8);
+		if (slots <= 0 || Integer.bitCount(slots) != 1 || HEADER_BYTES + 4L * slots > buffer.limit()) {
+			return false;
+		}
+		for (int i = 0; i < slots; ++i) {
+			int offset = buffer.getInt(HEADER_BYTES + 4 * i);
+			if (offset != EMPTY && (offset < HEADER_BYTES + 4 * slots || offset > buffer.limit() - 8)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Parses the given `.properties` file, and returns its compiled index. */
+	static byte[] compile(File propertiesFile) throws IOException {
+		Properties props = new Properties();
+		try (InputStream input = Files.newInputStream(propertiesFile.toPath())) {
+			props.load(input);
+		}
+		int slots = Integer.highestOneBit(Math.max(1, props.size()) * 2 - 1) << 1;
+		int[] table = new int[slots];
+		Arrays.fill(table, EMPTY);
+		byte[][] keys = new byte[props.size()][];
+		byte[][] values = new byte[props.size()][];
+		int entriesStart = HEADER_BYTES + 4 * slots;
+		int offset = entriesStart;
+		int i = 0;
+		for (Map.Entry<Object, Object> entry : props.entrySet()) {
+			String key = entry.getKey().toString();
+			keys[i] = key.getBytes(StandardCharsets.UTF_8);
+			values[i] = entry.getValue().toString().getBytes(StandardCharsets.UTF_8);
+			int slot = key.hashCode() & (slots - 1);
+			while (table[slot] != EMPTY) {
+				slot = (slot + 1) & (slots - 1);
+			}
+			table[slot] = offset;
+			offset += 8 + keys[i].length + values[i].length;
+			++i;
+		}
+		ByteBuffer compiled = ByteBuffer.allocate(offset);
+		compiled.putInt(MAGIC).putInt(props.size()).putInt(slots);
+		for (int slot : table) {
+			compiled.putInt(slot);
+		}
+		for (int j = 0; j < keys.length; ++j) {
+			compiled.putInt(keys[j].length).put(keys[j]).putInt(values[j].length).put(values[j]);
+		}
+		return compiled.array();
+	}
+
+	private final ByteBuffer buffer;
+	private final int size, slots;
+	/** Each value is decoded from the buffer once, since the same few keys get looked up over and over. */
+	private final Map<String, String> decoded = new ConcurrentHashMap<>();
+
+	private PropsIndex(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.size = buffer.getInt(4);
+		this.slots = buffer.getInt(8);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public @Nullable String get(Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		String value = decoded.get(key);
+		return value != null ? value : lookup((String) key);
+	}
+
+	private @Nullable String lookup(String key) {
+		byte[] wanted = ((String) key).getBytes(StandardCharsets.UTF_8);
+		int slot = key.hashCode() & (slots - 1);
+		for (int probes = 0; probes < slots; ++probes) {
+			int offset = buffer.getInt(HEADER_BYTES + 4 * slot);
+			if (offset == EMPTY) {
+				return null;
+			} else if (keyEquals(offset, wanted)) {
+				int valueStart = offset + 4 + wanted.length;
+				String value = string(valueStart + 4, buffer.getInt(valueStart));
+				decoded.putIfAbsent(key, value);
+				return value;
+			}
+			slot = (slot + 1) & (slots - 1);
+		}
+		return null;
+	}
+
+	private boolean keyEquals(int offset, byte[] wanted) {
+		if (buffer.getInt(offset) != wanted.length) {
+			return false;
+		}
+		for (int i = 0; i < wanted.length; ++i) {
+			if (buffer.get(offset + 4 + i) != wanted[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Absolute reads only, so that any number of threads can share the buffer. */
+	private String string(int start, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; ++i) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new Iterator<Map.Entry<String, String>>() {
+					int remaining = size;
+					int offset = HEADER_BYTES + 4 * slots;
+
+					@Override
+					public boolean hasNext() {
+						return remaining > 0;
+					}
+
+					@Override
+					public Map.Entry<String, String> next() {
+						if (remaining == 0) {
+							throw new NoSuchElementException();
+						}
+						int keyLength = buffer.getInt(offset);
+						String key = string(offset + 4, keyLength);
+						int valueStart = offset + 4 + keyLength;
+						int valueLength = buffer.getInt(valueStart);
+						String value = string(valueStart + 4, valueLength);
+						offset = valueStart + 4 + valueLength;
+						--remaining;
+						return new AbstractMap.SimpleImmutableEntry<>(key, value);
+					}
+				};
+			}
+		};
+	}
+}
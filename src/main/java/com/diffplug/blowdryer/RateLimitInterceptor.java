@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2022 DiffPlug
+ * Copyright (C) 2022-2026 DiffPlug
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,50 +15,55 @@
  */
 package com.diffplug.blowdryer;
 
-
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
+import okhttp3.Request;
 import okhttp3.Response;
 
+/**
+ * Sends every request through its host's {@link HostRateLimiter}, and retries it if the host rate-limits
+ * it anyway (429, or 503 with a `Retry-After`), after holding back every other request to that host too.
+ * Each retry is reported to the metrics of the {@link BuildState} which the request is tagged with.
+ */
 class RateLimitInterceptor implements Interceptor {
-	private static int RETRY_MAX_ATTEMPTS = 100;
-	private static long RETRY_MS = 100;
-	private static long RETRX_MAX_MS = 90_000;
-
-	private int retryAttempts = 0;
+	private static final int MAX_RETRIES = 3;
 
 	@Override
 	public Response intercept(Chain chain) throws IOException {
-		Response response = chain.proceed(chain.request());
-		// The retry system depends on the backend being used
-		// - GitLab -> 429 https://github.com/diffplug/blowdryer/pull/30
-		// - GitHub, etc. -> PR welcome
-		if (response.code() == 429 && retryAttempts < RETRY_MAX_ATTEMPTS) {
-			long retryAfter = RETRY_MS;
-			try {
-				retryAfter = Long.parseLong(response.header("Retry-After", "0")) * 1000;
-			} catch (NumberFormatException e) {
-				// ignore a non parsable header, it might be a date (https://developer.mozilla.org/en-US/docs/Web/HTTP/Headers/Retry-After)
-				// currently only gitlab is tested wich should send seconds in the header
-			}
-			if (retryAfter <= 0) {
-				retryAfter = RETRY_MS;
-			}
-			if (retryAfter > RETRX_MAX_MS) {
-				retryAfter = RETRX_MAX_MS;
+		Request request = chain.request();
+		HttpUrl url = request.url();
+		HostRateLimiter limiter = HostRateLimiter.forHost(url.host() + ":" + url.port());
+		for (int retry = 0;; ++retry) {
+			waitFor(limiter.reserve(System.nanoTime()));
+			Response response = chain.proceed(request);
+			limiter.observe(System.nanoTime(), System.currentTimeMillis(), response::header);
+			boolean rateLimited = response.code() == 429 || (response.code() == 503 && response.header("Retry-After") != null);
+			if (!rateLimited || retry == MAX_RETRIES) {
+				return response;
 			}
-
+			// GitLab sends seconds (https://github.com/diffplug/blowdryer/pull/30), others might send an HTTP-date
+			long retryAfter = HostRateLimiter.retryAfterMillis(response.header("Retry-After"), System.currentTimeMillis());
 			response.close();
-			try {
-				System.out.println("Blowdryer request to " + chain.request().url() + " has been rate-limited, retrying in " + retryAfter + " milliseconds");
-				Thread.sleep(retryAfter);
-			} catch (InterruptedException e) {
-				throw new IllegalStateException("interrupted while waiting due to rate limiting", e);
+			limiter.blockFor(System.nanoTime(), retryAfter);
+			System.out.println("Blowdryer request to " + url + " has been rate-limited, retrying in " + retryAfter + " milliseconds");
+			BuildState build = request.tag(BuildState.class);
+			if (build != null) {
+				build.metrics.rateLimited(url.toString(), retryAfter);
 			}
-			retryAttempts++;
-			response = chain.proceed(chain.request());
 		}
+	}
 
-		return response;
+	private static void waitFor(long nanos) {
+		if (nanos <= 0) {
+			return;
+		}
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while waiting due to rate limiting", e);
+		}
 	}
 }
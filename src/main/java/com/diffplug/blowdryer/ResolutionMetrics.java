@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Counts what a single build's resolution costs, forwards every event to the listeners which other plugins
+ * registered, and writes it all out as a JSON report once the build is done.
+ */
+class ResolutionMetrics implements BlowdryerListener {
+	static final int SLOWEST = 10;
+
+	final List<BlowdryerListener> listeners = new CopyOnWriteArrayList<>();
+
+	final LongAdder memoryHits = new LongAdder();
+	final LongAdder diskHits = new LongAdder();
+	final LongAdder downloads = new LongAdder();
+	final LongAdder downloadedBytes = new LongAdder();
+	final LongAdder rateLimited = new LongAdder();
+	final LongAdder lockWaitNanos = new LongAdder();
+	final LongAdder resolveNanos = new LongAdder();
+	/** Incremented directly by every `prop()`, without an event, since it's the hot path. */
+	final LongAdder propLookups = new LongAdder();
+	/** Only the lookups which went to disk or the network, since memory hits are never the slow ones. */
+	private final Map<String, Slow> slowLookups = new ConcurrentHashMap<>();
+
+	private static class Slow {
+		final String url;
+		final Source source;
+		final long nanos;
+
+		Slow(String url, Source source, long nanos) {
+			this.url = url;
+			this.source = source;
+			this.nanos = nanos;
+		}
+	}
+
+	@Override
+	public void resolved(String url, Source source, long nanos) {
+		switch (source) {
+		case MEMORY:
+			memoryHits.increment();
+			break;
+		case DISK:
+			diskHits.increment();
+			break;
+		case DOWNLOAD:
+			downloads.increment();
+			break;
+		}
+		resolveNanos.add(nanos);
+		if (source != Source.MEMORY) {
+			slowLookups.merge(url, new Slow(url, source, nanos), (a, b) -> a.nanos >= b.nanos ? a : b);
+		}
+		if (!listeners.isEmpty()) {
+			notifyListeners(listener -> listener.resolved(url, source, nanos));
+		}
+	}
+
+	@Override
+	public void downloaded(String url, long bytes, long nanos) {
+		downloadedBytes.add(bytes);
+		if (!listeners.isEmpty()) {
+			notifyListeners(listener -> listener.downloaded(url, bytes, nanos));
+		}
+	}
+
+	@Override
+	public void rateLimited(String url, long waitMillis) {
+		rateLimited.increment();
+		if (!listeners.isEmpty()) {
+			notifyListeners(listener -> listener.rateLimited(url, waitMillis));
+		}
+	}
+
+	@Override
+	public void waitedForLock(String url, long nanos) {
+		lockWaitNanos.add(nanos);
+		if (!listeners.isEmpty()) {
+			notifyListeners(listener -> listener.waitedForLock(url, nanos));
+		}
+	}
+
+	@Override
+	public void propsLoaded(String propFile) {
+		if (!listeners.isEmpty()) {
+			notifyListeners(listener -> listener.propsLoaded(propFile));
+		}
+	}
+
+	/** Calls every listener, and a listener which throws only loses its own event. */
+	private void notifyListeners(Consumer<BlowdryerListener> event) {
+		for (BlowdryerListener listener : listeners) {
+			try {
+				event.accept(listener);
+			} catch (RuntimeException e) {
+				System.err.println("Blowdryer listener " + listener + " failed: " + e);
+			}
+		}
+	}
+
+	boolean isEmpty() {
+		return memoryHits.sum() + diskHits.sum() + downloads.sum() + propLookups.sum() == 0;
+	}
+
+	JsonObject toJson() {
+		JsonObject json = new JsonObject();
+		json.addProperty("memoryHits", memoryHits.sum());
+		json.addProperty("diskHits", diskHits.sum());
+		json.addProperty("downloads", downloads.sum());
+		json.addProperty("downloadedBytes", downloadedBytes.sum());
+		json.addProperty("rateLimitedRetries", rateLimited.sum());
+		json.addProperty("lockWaitMs", TimeUnit.NANOSECONDS.toMillis(lockWaitNanos.sum()));
+		json.addProperty("resolveMs", TimeUnit.NANOSECONDS.toMillis(resolveNanos.sum()));
+		json.addProperty("propLookups", propLookups.sum());
+		List<Slow> slowest = new ArrayList<>(slowLookups.values());
+		slowest.sort(Comparator.comparingLong((Slow slow) -> slow.nanos).reversed());
+		JsonArray slowestJson = new JsonArray();
+		for (Slow slow : slowest.subList(0, Math.min(SLOWEST, slowest.size()))) {
+			JsonObject entry = new JsonObject();
+			entry.addProperty("url", slow.url);
+			entry.addProperty("source", slow.source.name());
+			entry.addProperty("ms", TimeUnit.NANOSECONDS.toMillis(slow.nanos));
+			slowestJson.add(entry);
+		}
+		json.add("slowest", slowestJson);
+		return json;
+	}
+
+	/** Writes the report, unless nothing was resolved (e.g. a configuration cache hit), which leaves the previous one in place. */
+	void writeReport(File reportFile) throws IOException {
+		if (isEmpty()) {
+			return;
+		}
+		String json = new GsonBuilder().setPrettyPrinting().create().toJson(toJson());
+		AtomicFiles.write(reportFile, json.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * The one {@link OkHttpClient} which every Blowdryer request goes through, so that connections,
+ * TLS sessions and HTTP/2 streams to the git host get reused across downloads.
+ */
+class SharedHttpClient {
+	static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 10;
+	static final int DEFAULT_READ_TIMEOUT_SECONDS = 30;
+
+	private SharedHttpClient() {}
+
+	private static volatile OkHttpClient client;
+	private static final Map<Long, OkHttpClient> withTimeouts = new ConcurrentHashMap<>();
+
+	/** Returns the shared client, with the default timeouts, creating it on first use. */
+	static OkHttpClient get() {
+		OkHttpClient result = client;
+		if (result == null) {
+			synchronized (SharedHttpClient.class) {
+				result = client;
+				if (result == null) {
+					result = new OkHttpClient.Builder()
+							.connectionPool(new ConnectionPool(FetchExecutor.MAX_PARALLEL, 5, TimeUnit.MINUTES))
+							.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+							.connectTimeout(DEFAULT_CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+							.readTimeout(DEFAULT_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+							.addInterceptor(new RateLimitInterceptor())
+							.build();
+					client = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/** Returns the shared client with the given build's timeouts. */
+	static OkHttpClient get(BuildState build) {
+		return get(build.connectTimeoutSeconds, build.readTimeoutSeconds);
+	}
+
+	/** Returns the shared client with the given timeouts, which has the same connection pool and dispatcher as every other. */
+	static OkHttpClient get(int connectTimeoutSeconds, int readTimeoutSeconds) {
+		OkHttpClient shared = get();
+		if (connectTimeoutSeconds == DEFAULT_CONNECT_TIMEOUT_SECONDS && readTimeoutSeconds == DEFAULT_READ_TIMEOUT_SECONDS) {
+			return shared;
+		}
+		// newBuilder() keeps the connection pool, so every variant reuses the same connections
+		return withTimeouts.computeIfAbsent(((long) connectTimeoutSeconds << 32) | readTimeoutSeconds, unused -> shared.newBuilder()
+				.connectTimeout(connectTimeoutSeconds, TimeUnit.SECONDS)
+				.readTimeout(readTimeoutSeconds, TimeUnit.SECONDS)
+				.build());
+	}
+
+	/**
+	 * Starts the TCP and TLS handshakes to the host of the given url in the background, so that the
+	 * first real download finds a warm connection in the pool. Whatever the server responds is ignored.
+	 */
+	static void preconnect(BuildState build, String url) {
+		HttpUrl parsed = HttpUrl.parse(url);
+		if (parsed == null || build.offline) {
+			return;
+		}
+		Request request = new Request.Builder().url(parsed.scheme() + "://" + parsed.host() + ":" + parsed.port() + "/").head().tag(BuildState.class, build).build();
+		get(build).newCall(request).enqueue(new Callback() {
+			@Override
+			public void onResponse(Call call, Response response) {
+				response.close();
+			}
+
+			@Override
+			public void onFailure(Call call, IOException e) {
+				// the real download will report it, if it's still a problem
+			}
+		});
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import com.diffplug.common.base.Errors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs at most one computation per key at a time. Callers which arrive while
+ * a key is in-flight wait for that computation and share its result (or its
+ * exception), while different keys proceed in parallel.
+ */
+class SingleFlight<K, V> {
+	private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	V get(K key, Callable<V> compute) {
+		CompletableFuture<V> mine = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+		if (existing != null) {
+			try {
+				return existing.join();
+			} catch (CompletionException e) {
+				throw Errors.asRuntime(e.getCause());
+			}
+		}
+		try {
+			V value = compute.call();
+			mine.complete(value);
+			return value;
+		} catch (Throwable e) {
+			mine.completeExceptionally(e);
+			throw Errors.asRuntime(e);
+		} finally {
+			inFlight.remove(key, mine);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Streams content onto disk with {@link FileChannel#transferFrom}, and hashes it along the way,
+ * so the bytes are only read once.
+ */
+class Transfers {
+	private Transfers() {}
+
+	/** Copies the given stream into dst, and returns the SHA-256 of what was copied. */
+	static String copyHashing(InputStream input, File dst) throws IOException {
+		try (HashingChannel source = new HashingChannel(Channels.newChannel(input));
+				FileChannel sink = FileChannel.open(dst.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long position = 0;
+			long transferred;
+			// a blocking source only transfers 0 bytes once it's exhausted
+			while ((transferred = sink.transferFrom(source, position, Long.MAX_VALUE)) > 0) {
+				position += transferred;
+			}
+			return source.hex();
+		}
+	}
+
+	/** Hashes every byte which is read through it. */
+	private static class HashingChannel implements ReadableByteChannel {
+		private final ReadableByteChannel delegate;
+		private final MessageDigest digest;
+
+		HashingChannel(ReadableByteChannel delegate) {
+			this.delegate = delegate;
+			try {
+				this.digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("Every JVM must support SHA-256", e);
+			}
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			int start = dst.position();
+			int read = delegate.read(dst);
+			if (read > 0) {
+				ByteBuffer justRead = dst.duplicate();
+				justRead.limit(dst.position());
+				justRead.position(start);
+				digest.update(justRead);
+			}
+			return read;
+		}
+
+		String hex() {
+			StringBuilder hex = new StringBuilder(64);
+			for (byte b : digest.digest()) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return delegate.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			delegate.close();
+		}
+	}
+}
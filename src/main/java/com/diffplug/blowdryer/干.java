@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2019-2022 DiffPlug
+ * Copyright (C) 2019-2026 DiffPlug
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package com.diffplug.blowdryer;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
 import org.gradle.api.Project;
 
@@ -40,6 +42,21 @@ public class 干 {
 		return Blowdryer.file(resource);
 	}
 
+	/** Alias for {@link Blowdryer#files(List)}. */
+	public static List<File> files(List<String> resources) {
+		return Blowdryer.files(resources);
+	}
+
+	/** Alias for {@link Blowdryer#files(String...)}. */
+	public static List<File> files(String... resources) {
+		return Blowdryer.files(resources);
+	}
+
+	/** Alias for {@link Blowdryer#props(String)}. */
+	public static Map<String, String> props(String propFile) {
+		return Blowdryer.props(propFile);
+	}
+
 	/** Alias for {@link Blowdryer#prop(String, String)}. */
 	public static String prop(String propFile, String key) throws IOException {
 		return Blowdryer.prop(propFile, key);
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.diffplug.common.base.StandardSystemProperty;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BlowdryerArchiveTest {
+	@Rule
+	public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+	@Before
+	public void setup() {
+		Blowdryer.initTempDir(StandardSystemProperty.JAVA_IO_TMPDIR.value());
+		Blowdryer.setResourcePluginNull();
+	}
+
+	@After
+	public void cleanup() {
+		Blowdryer.setResourcePluginNull();
+	}
+
+	private static byte[] zip(String... namesAndContent) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+			for (int i = 0; i < namesAndContent.length; i += 2) {
+				zip.putNextEntry(new ZipEntry(namesAndContent[i]));
+				zip.write(namesAndContent[i + 1].getBytes(StandardCharsets.UTF_8));
+				zip.closeEntry();
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void everyFileComesFromOneDownload() throws IOException {
+		String path = "/" + UUID.randomUUID() + ".zip";
+		wireMockRule.stubFor(WireMock.get(urlEqualTo(path))
+				.willReturn(aResponse().withStatus(200).withBody(zip(
+						"acme-blowdryer-acme-07f588e/README.md", "readme",
+						"acme-blowdryer-acme-07f588e/src/main/resources/a.gradle", "a",
+						"acme-blowdryer-acme-07f588e/src/main/resources/sub/b.properties", "name=b"))));
+		String archiveUrl = "http://localhost:" + wireMockRule.port() + path;
+		Blowdryer.setResourcePlugin(resource -> ArchiveUrl.of(archiveUrl, true, "src/main/resources", resource));
+
+		assertThat(Blowdryer.files("a.gradle", "sub/b.properties"))
+				.satisfiesExactly(a -> assertThat(a).hasContent("a"), b -> assertThat(b).hasContent("name=b"));
+		assertThatThrownBy(() -> Blowdryer.file("README.md"))
+				.hasMessageContaining("Could not find 'README.md'");
+		assertThatThrownBy(() -> Blowdryer.file("README.md"))
+				.hasMessageContaining("Could not find 'README.md'");
+		// the index knows everything the archive holds, so neither the hits nor the misses download it again
+		verify(1, getRequestedFor(urlEqualTo(path)));
+	}
+
+	@Test
+	public void evictingAFileMakesTheArchiveIncomplete() throws IOException {
+		String path = "/" + UUID.randomUUID() + ".zip";
+		wireMockRule.stubFor(WireMock.get(urlEqualTo(path))
+				.willReturn(aResponse().withStatus(200).withBody(zip(
+						"acme-blowdryer-acme-07f588e/src/main/resources/a.gradle", "a"))));
+		String archiveUrl = "http://localhost:" + wireMockRule.port() + path;
+		Blowdryer.setResourcePlugin(resource -> ArchiveUrl.of(archiveUrl, true, "src/main/resources", resource));
+		assertThat(Blowdryer.file("a.gradle")).hasContent("a");
+
+		// once a file is gone from the index, a miss can't trust it anymore, and checks the archive again
+		String a = ArchiveUrl.of(archiveUrl, true, "src/main/resources", "a.gradle");
+		Blowdryer.index().removeAll(Collections.singletonList(a));
+		assertThat(Blowdryer.index().get(ArchiveUrl.parse(a).root())).isNull();
+		assertThatThrownBy(() -> Blowdryer.file("missing.gradle"))
+				.hasMessageContaining("Could not find 'missing.gradle'");
+		verify(2, getRequestedFor(urlEqualTo(path)));
+	}
+
+	@Test
+	public void relativize() {
+		ArchiveUrl withTopLevel = ArchiveUrl.parse(ArchiveUrl.of("https://host/a.zip", true, "src/main/resources", "x"));
+		assertThat(withTopLevel.archiveUrl).isEqualTo("https://host/a.zip");
+		assertThat(withTopLevel.resource).isEqualTo("x");
+		assertThat(withTopLevel.relativize("top/src/main/resources/a/b.txt")).isEqualTo("a/b.txt");
+		assertThat(withTopLevel.relativize("top/README.md")).isNull();
+		assertThat(withTopLevel.relativize("src/main/resources/a/b.txt")).isNull();
+
+		ArchiveUrl rootFolder = ArchiveUrl.parse(ArchiveUrl.of("https://host/a.zip", true, "", "x"));
+		assertThat(rootFolder.relativize("top/README.md")).isEqualTo("README.md");
+
+		ArchiveUrl noTopLevel = ArchiveUrl.parse(ArchiveUrl.of("https://host/a.zip", false, "src/main/resources", "x"));
+		assertThat(noTopLevel.relativize("src/main/resources/a/b.txt")).isEqualTo("a/b.txt");
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.diffplug.common.base.StandardSystemProperty;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BlowdryerConcurrencyTest {
+	private static final int THREADS = 8;
+
+	@Rule
+	public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+	@Before
+	public void setup() {
+		Blowdryer.initTempDir(StandardSystemProperty.JAVA_IO_TMPDIR.value());
+	}
+
+	@Test
+	public void concurrentCallersShareOneDownload() throws Exception {
+		String path = "/" + UUID.randomUUID();
+		wireMockRule.stubFor(WireMock.get(urlEqualTo(path))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withFixedDelay(500)
+						.withBody("shared")));
+
+		String url = "http://localhost:" + wireMockRule.port() + path;
+		List<File> results = resolveConcurrently(url, url, url, url, url, url, url, url);
+
+		verify(1, getRequestedFor(urlEqualTo(path)));
+		for (File result : results) {
+			assertThat(result).hasContent("shared");
+		}
+	}
+
+	@Test
+	public void differentUrlsDownloadInParallel() throws Exception {
+		String[] urls = new String[THREADS];
+		for (int i = 0; i < THREADS; ++i) {
+			String path = "/" + UUID.randomUUID();
+			wireMockRule.stubFor(WireMock.get(urlEqualTo(path))
+					.willReturn(aResponse()
+							.withStatus(200)
+							.withFixedDelay(1_000)
+							.withBody("content" + i)));
+			urls[i] = "http://localhost:" + wireMockRule.port() + path;
+		}
+
+		long start = System.nanoTime();
+		List<File> results = resolveConcurrently(urls);
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		// serialized downloads would take at least THREADS seconds
+		assertThat(elapsedMs).isLessThan(THREADS * 1_000 / 2);
+		for (int i = 0; i < THREADS; ++i) {
+			assertThat(results.get(i)).hasContent("content" + i);
+		}
+	}
+
+	@Test
+	public void filesFetchesInParallelAndInOrder() throws Exception {
+		String root = "/" + UUID.randomUUID() + "/";
+		for (int i = 0; i < THREADS; ++i) {
+			wireMockRule.stubFor(WireMock.get(urlEqualTo(root + i))
+					.willReturn(aResponse()
+							.withStatus(200)
+							.withFixedDelay(1_000)
+							.withBody("content" + i)));
+		}
+		String[] resources = new String[THREADS];
+		for (int i = 0; i < THREADS; ++i) {
+			resources[i] = Integer.toString(THREADS - 1 - i);
+		}
+
+		Blowdryer.setResourcePluginNull();
+		Blowdryer.setResourcePlugin(resource -> "http://localhost:" + wireMockRule.port() + root + resource);
+		try {
+			long start = System.nanoTime();
+			List<File> results = Blowdryer.files(resources);
+			long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+			assertThat(elapsedMs).isLessThan(THREADS * 1_000 / 2);
+			for (int i = 0; i < THREADS; ++i) {
+				assertThat(results.get(i)).hasContent("content" + resources[i]);
+			}
+		} finally {
+			Blowdryer.setResourcePluginNull();
+		}
+	}
+
+	@Test
+	public void filesReportsEveryFailure() {
+		String root = "/" + UUID.randomUUID() + "/";
+		wireMockRule.stubFor(WireMock.get(urlEqualTo(root + "good"))
+				.willReturn(aResponse().withStatus(200).withBody("good")));
+
+		Blowdryer.setResourcePluginNull();
+		Blowdryer.setResourcePlugin(resource -> "http://localhost:" + wireMockRule.port() + root + resource);
+		try {
+			assertThatThrownBy(() -> Blowdryer.files("missingA", "good", "missingB"))
+					.hasMessageStartingWith("Failed to fetch 2 of 3:")
+					.hasMessageContaining("missingA")
+					.hasMessageContaining("missingB");
+		} finally {
+			Blowdryer.setResourcePluginNull();
+		}
+	}
+
+	@Test
+	public void propsAreOneSharedSnapshot() throws Exception {
+		String root = "/" + UUID.randomUUID() + "/";
+		wireMockRule.stubFor(WireMock.get(urlEqualTo(root + "versions.properties"))
+				.willReturn(aResponse().withStatus(200).withBody("guava=31.1\njunit=4.13.2\n")));
+
+		Blowdryer.setResourcePluginNull();
+		Blowdryer.setResourcePlugin(resource -> "http://localhost:" + wireMockRule.port() + root + resource);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int i = 0; i < 100 * THREADS; ++i) {
+				String key = i % 2 == 0 ? "guava" : "junit";
+				futures.add(executor.submit(() -> Blowdryer.prop("versions", key)));
+			}
+			for (int i = 0; i < futures.size(); ++i) {
+				assertThat(futures.get(i).get()).isEqualTo(i % 2 == 0 ? "31.1" : "4.13.2");
+			}
+			verify(1, getRequestedFor(urlEqualTo(root + "versions.properties")));
+
+			Map<String, String> props = Blowdryer.props("versions");
+			assertThat(props).containsOnlyKeys("guava", "junit");
+			assertThat(Blowdryer.props("versions")).isSameAs(props);
+			assertThatThrownBy(() -> props.put("guava", "0")).isInstanceOf(UnsupportedOperationException.class);
+		} finally {
+			executor.shutdown();
+			Blowdryer.setResourcePluginNull();
+		}
+	}
+
+	private static List<File> resolveConcurrently(String... urls) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(urls.length);
+		try {
+			List<Future<File>> futures = new ArrayList<>();
+			for (String url : urls) {
+				futures.add(executor.submit(() -> Blowdryer.immutableUrl(url)));
+			}
+			List<File> results = new ArrayList<>();
+			for (Future<File> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.diffplug.common.base.StandardSystemProperty;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BlowdryerOfflineTest {
+	@Rule
+	public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+	@Before
+	public void setup() {
+		Blowdryer.initTempDir(StandardSystemProperty.JAVA_IO_TMPDIR.value());
+		Blowdryer.setResourcePluginNull();
+	}
+
+	@After
+	public void cleanup() {
+		Blowdryer.current().offline = false;
+		Blowdryer.setResourcePluginNull();
+	}
+
+	private String useRepo(String repo) {
+		Blowdryer.setResourcePluginNull();
+		String root = "http://localhost:" + wireMockRule.port() + "/" + repo + "/";
+		Blowdryer.setResourcePlugin(resource -> root + resource, null, repo, "v1");
+		for (String resource : new String[]{"a.gradle", "b.gradle", "c.gradle"}) {
+			wireMockRule.stubFor(WireMock.get(urlEqualTo("/" + repo + "/" + resource))
+					.willReturn(aResponse().withStatus(200).withBody(resource)));
+		}
+		return root;
+	}
+
+	@Test
+	public void servesFromCacheAndListsEveryMiss() {
+		String repo = UUID.randomUUID().toString();
+		String root = useRepo(repo);
+		Blowdryer.file("a.gradle");
+		Blowdryer.file("b.gradle");
+		// a.gradle is the only one which got cached, b.gradle was wiped
+		Blowdryer.wipeCache((url, attributes) -> url.equals(root + "b.gradle"), false);
+
+		useRepo(repo);
+		Blowdryer.current().offline = true;
+		assertThat(Blowdryer.file("a.gradle")).hasContent("a.gradle");
+		assertThatThrownBy(() -> Blowdryer.file("c.gradle"))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageStartingWith("Blowdryer is offline, and 2 resource(s) are missing")
+				.hasMessageContaining(root + "c.gradle")
+				.hasMessageContaining(root + "b.gradle")
+				.hasMessageNotContaining(root + "a.gradle");
+		verify(1, getRequestedFor(urlEqualTo("/" + repo + "/a.gradle")));
+		verify(1, getRequestedFor(urlEqualTo("/" + repo + "/b.gradle")));
+		verify(0, getRequestedFor(urlEqualTo("/" + repo + "/c.gradle")));
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2019-2021 DiffPlug
+ * Copyright (C) 2019-2026 DiffPlug
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,6 +15,7 @@
  */
 package com.diffplug.blowdryer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -59,4 +60,27 @@ public class BlowdryerPluginConfigurationCacheTest extends GradleHarness {
 				"assert Blowdryer.file('sample').text == 'a'");
 		gradleRunner().buildAndFail();
 	}
+
+	@Test
+	public void hitSkipsConfiguration() throws IOException {
+		settingsGithub("test/2/a");
+		write(BUILD_GRADLE,
+				"apply plugin: 'com.diffplug.blowdryer'",
+				"def sample = 干.file('sample').text",
+				"def name = 干.prop('sample', 'name')",
+				"println 'configuring'",
+				"tasks.register('sample') { doLast { println \"sample=$sample name=$name\" } }");
+		assertThat(gradleRunner().withArguments("sample").build().getOutput())
+				.contains("configuring")
+				.contains("sample=a name=test");
+		assertThat(gradleRunner().withArguments("sample").build().getOutput())
+				.doesNotContain("configuring")
+				.contains("sample=a name=test");
+
+		// a different anchor is a different immutable url
+		settingsGithub("test/2/b");
+		assertThat(gradleRunner().withArguments("sample").build().getOutput())
+				.contains("configuring")
+				.contains("sample=b name=testB");
+	}
 }
@@ -242,6 +242,25 @@ public class BlowdryerPluginTest extends GradleHarness {
 		gradleRunner().buildAndFail();
 	}
 
+	@Test
+	public void includedBuildOnAnotherAnchor() throws IOException {
+		settingsGithub("test/2/a",
+				"includeBuild 'included'");
+		write(BUILD_GRADLE,
+				"apply plugin: 'com.diffplug.blowdryer'",
+				"assert 干.file('sample').text == 'a'",
+				"assert 干.prop('sample', 'name') == 'test'");
+		write("included/" + SETTINGS_GRADLE,
+				"plugins { id 'com.diffplug.blowdryerSetup' }",
+				"blowdryerSetup { github('diffplug/blowdryer', 'tag', 'test/2/b') }",
+				"rootProject.name = 'included'");
+		write("included/" + BUILD_GRADLE,
+				"apply plugin: 'com.diffplug.blowdryer'",
+				"assert 干.file('sample').text == 'b'",
+				"assert 干.prop('sample', 'name') == 'testB'");
+		gradleRunner().withArguments("help", ":included:help").build();
+	}
+
 	@Test
 	public void missingResourceThrowsError() throws IOException {
 		settingsGithub("test/2/a");
@@ -340,6 +359,29 @@ public class BlowdryerPluginTest extends GradleHarness {
 		gradleRunner().build();
 	}
 
+	@Test
+	public void localJarExtractAll() throws IOException {
+		String jarFile = BlowdryerPluginTest.class.getResource("test.jar").getFile();
+		if (System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win")) {
+			Assertions.assertThat(jarFile).startsWith("/");
+			jarFile = jarFile.substring(1);
+		}
+		write(SETTINGS_GRADLE,
+				"plugins { id 'com.diffplug.blowdryerSetup' }",
+				"blowdryerSetup { localJar(file('" + jarFile + "'), true) }");
+		write(BUILD_GRADLE,
+				"apply plugin: 'com.diffplug.blowdryer'",
+				"assert 干.file('sample').exists()",
+				"try {",
+				"  干.file('invalid-file.txt')",
+				"  assert false",
+				"} catch (Exception e) {",
+				"  assert e.message.contains(\"Could not find 'invalid-file.txt'\")",
+				"}");
+
+		gradleRunner().build();
+	}
+
 	@Test
 	public void localJarRepoSubfolderException() throws IOException {
 		String jarFile = BlowdryerPluginTest.class.getResource("test.jar").getFile();
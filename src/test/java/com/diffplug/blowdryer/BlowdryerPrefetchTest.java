@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.diffplug.common.base.StandardSystemProperty;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BlowdryerPrefetchTest {
+	@Rule
+	public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+	@Before
+	public void setup() {
+		Blowdryer.initTempDir(StandardSystemProperty.JAVA_IO_TMPDIR.value());
+		Blowdryer.setResourcePluginNull();
+	}
+
+	@After
+	public void cleanup() {
+		Blowdryer.setResourcePluginNull();
+	}
+
+	private void useAnchor(String repo, String anchor) {
+		Blowdryer.setResourcePluginNull();
+		String root = "http://localhost:" + wireMockRule.port() + "/" + repo + "/" + anchor + "/";
+		Blowdryer.setResourcePlugin(resource -> root + resource, null, repo, anchor);
+		for (String resource : new String[]{"a.gradle", "b.properties"}) {
+			wireMockRule.stubFor(WireMock.get(urlEqualTo("/" + repo + "/" + anchor + "/" + resource))
+					.willReturn(aResponse().withStatus(200).withBody(anchor + " " + resource)));
+		}
+	}
+
+	@Test
+	public void bumpedAnchorPrefetchesWhatThePreviousBuildUsed() throws Exception {
+		String repo = UUID.randomUUID().toString();
+		useAnchor(repo, "v1");
+		Blowdryer.prefetchInBackground().get();
+		Blowdryer.file("a.gradle");
+		Blowdryer.file("b.properties");
+
+		useAnchor(repo, "v2");
+		Blowdryer.prefetchInBackground().get();
+		verify(1, getRequestedFor(urlEqualTo("/" + repo + "/v2/a.gradle")));
+		verify(1, getRequestedFor(urlEqualTo("/" + repo + "/v2/b.properties")));
+
+		// and the build's own calls are cache hits
+		assertThat(Blowdryer.file("a.gradle")).hasContent("v2 a.gradle");
+		assertThat(Blowdryer.file("b.properties")).hasContent("v2 b.properties");
+		verify(1, getRequestedFor(urlEqualTo("/" + repo + "/v2/a.gradle")));
+	}
+
+	@Test
+	public void pathWhichFailsToPrefetchIsForgotten() throws Exception {
+		String repo = UUID.randomUUID().toString();
+		useAnchor(repo, "v1");
+		Blowdryer.file("a.gradle");
+		Blowdryer.file("b.properties");
+
+		// v2 deleted b.properties
+		useAnchor(repo, "v2");
+		wireMockRule.stubFor(WireMock.get(urlEqualTo("/" + repo + "/v2/b.properties")).willReturn(aResponse().withStatus(404)));
+		Blowdryer.prefetchInBackground().get();
+		verify(1, getRequestedFor(urlEqualTo("/" + repo + "/v2/b.properties")));
+
+		// so the next build doesn't try it again
+		useAnchor(repo, "v3");
+		Blowdryer.prefetchInBackground().get();
+		verify(1, getRequestedFor(urlEqualTo("/" + repo + "/v3/a.gradle")));
+		verify(0, getRequestedFor(urlEqualTo("/" + repo + "/v3/b.properties")));
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.diffplug.common.base.StandardSystemProperty;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BlowdryerRevalidateTest {
+	@Rule
+	public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+	@Before
+	public void setup() {
+		Blowdryer.initTempDir(StandardSystemProperty.JAVA_IO_TMPDIR.value());
+		Blowdryer.setResourcePluginNull();
+	}
+
+	@After
+	public void cleanup() {
+		Blowdryer.setResourcePluginNull();
+	}
+
+	/** Starts a new build from the given branch root, which gets revalidated after the given interval. */
+	private static void newBuild(String root, long revalidateMs) {
+		Blowdryer.setResourcePluginNull();
+		Blowdryer.setResourcePlugin(resource -> root + resource, null, "org/repo", "main");
+		Blowdryer.setRevalidateEvery(revalidateMs);
+	}
+
+	@Test
+	public void staleWhileRevalidate() {
+		String path = "/" + UUID.randomUUID() + "/main/a.gradle";
+		String root = "http://localhost:" + wireMockRule.port() + path.substring(0, path.length() - "a.gradle".length());
+		wireMockRule.stubFor(WireMock.get(urlEqualTo(path))
+				.willReturn(aResponse().withStatus(200).withHeader("ETag", "\"v1\"").withBody("v1")));
+		wireMockRule.stubFor(WireMock.get(urlEqualTo(path)).atPriority(1)
+				.withHeader("If-None-Match", equalTo("\"v1\""))
+				.willReturn(aResponse().withStatus(304)));
+
+		newBuild(root, TimeUnit.MINUTES.toMillis(10));
+		assertThat(Blowdryer.file("a.gradle")).hasContent("v1");
+		verify(1, getRequestedFor(urlEqualTo(path)));
+
+		// within the interval, no requests at all
+		newBuild(root, TimeUnit.MINUTES.toMillis(10));
+		assertThat(Blowdryer.file("a.gradle")).hasContent("v1");
+		verify(1, getRequestedFor(urlEqualTo(path)));
+
+		// once it's stale, the build gets the cached copy right away, and a conditional request comes back 304 in the background
+		newBuild(root, 0);
+		File unchanged = Blowdryer.file("a.gradle");
+		assertThat(unchanged).hasContent("v1");
+		Blowdryer.awaitRevalidations();
+		verify(1, getRequestedFor(urlEqualTo(path)).withHeader("If-None-Match", equalTo("\"v1\"")));
+		// and it only gets revalidated once per build
+		Blowdryer.file("a.gradle");
+		Blowdryer.awaitRevalidations();
+		verify(2, getRequestedFor(urlEqualTo(path)));
+
+		// the branch moved, this build keeps what it has, and the next build gets the new content
+		wireMockRule.resetAll();
+		wireMockRule.stubFor(WireMock.get(urlEqualTo(path))
+				.willReturn(aResponse().withStatus(200).withHeader("ETag", "\"v2\"").withBody("v2")));
+		newBuild(root, 0);
+		assertThat(Blowdryer.file("a.gradle")).hasContent("v1");
+		Blowdryer.awaitRevalidations();
+		newBuild(root, 0);
+		assertThat(Blowdryer.file("a.gradle")).hasContent("v2");
+		assertThat(unchanged).hasContent("v1");
+		Blowdryer.awaitRevalidations();
+	}
+
+	@Test
+	public void staleIfError() {
+		String path = "/" + UUID.randomUUID() + "/main/a.gradle";
+		String root = "http://localhost:" + wireMockRule.port() + path.substring(0, path.length() - "a.gradle".length());
+		wireMockRule.stubFor(WireMock.get(urlEqualTo(path))
+				.willReturn(aResponse().withStatus(200).withHeader("ETag", "\"v1\"").withBody("v1")));
+		newBuild(root, 0);
+		assertThat(Blowdryer.file("a.gradle")).hasContent("v1");
+		Blowdryer.awaitRevalidations();
+
+		// the host goes down, and every build keeps using the last good copy
+		wireMockRule.resetAll();
+		wireMockRule.stubFor(WireMock.get(urlEqualTo(path)).willReturn(aResponse().withStatus(500)));
+		for (int i = 0; i < 2; ++i) {
+			newBuild(root, 0);
+			assertThat(Blowdryer.file("a.gradle")).hasContent("v1");
+			Blowdryer.awaitRevalidations();
+		}
+		verify(2, getRequestedFor(urlEqualTo(path)));
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2019-2023 DiffPlug
+ * Copyright (C) 2019-2026 DiffPlug
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,14 +19,16 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 import com.diffplug.blowdryer.Blowdryer.AuthPlugin;
 import com.diffplug.blowdryer.Blowdryer.ResourcePlugin;
 import com.diffplug.blowdryer.BlowdryerSetup.Bitbucket;
 import com.diffplug.blowdryer.BlowdryerSetup.GitAnchorType;
 import com.diffplug.common.base.StandardSystemProperty;
-import java.lang.reflect.Field;
+import java.io.File;
 import java.util.Base64;
 import java.util.Locale;
 import java.util.UUID;
@@ -62,6 +64,8 @@ public class BlowdryerTest {
 		String test = "https://raw.githubusercontent.com/diffplug/blowdryer/test/2/b/src/main/resources/sample";
 		assertThat(Blowdryer.immutableUrl(test)).hasContent("b");
 		Blowdryer.immutableUrl(test).delete();
+		// a deleted file is noticed by the first lookup of the next build
+		Blowdryer.setResourcePluginNull();
 		assertThat(Blowdryer.immutableUrl(test)).hasContent("b");
 	}
 
@@ -82,12 +86,24 @@ public class BlowdryerTest {
 		assertThat(Blowdryer.immutableUrl(FILE_PROTOCOL + jarFile + JAR_FILE_RESOURCE_SEPARATOR + "sample", ".suffix2").getName()).endsWith(".suffix2");
 	}
 
+	@Test
+	public void requiredSuffixSharesContent() {
+		String jarFile = BlowdryerPluginTest.class.getResource("test.jar").getFile();
+		File a = Blowdryer.immutableUrl(FILE_PROTOCOL + jarFile + JAR_FILE_RESOURCE_SEPARATOR + "sample", ".shareA");
+		File b = Blowdryer.immutableUrl(FILE_PROTOCOL + jarFile + JAR_FILE_RESOURCE_SEPARATOR + "sample", ".shareB");
+		// both names live in the folder for the same content hash
+		assertThat(a.getParentFile()).isEqualTo(b.getParentFile());
+		assertThat(a).hasSameTextualContentAs(b);
+	}
+
 	@Test
 	public void bitbucketCloud_tagAnchorType() throws Exception {
 		final String hashRequestUrl = "https://api.bitbucket.org/2.0/repositories/testOrg/testRepo/refs/tags/testAnchor";
 		final String hash = UUID.randomUUID().toString();
 		final String expected = "https://api.bitbucket.org/2.0/repositories/testOrg/testRepo/src/" + hash + "/src/main/resources/test.properties";
 
+		// the cache outlives the test run, so forget what an earlier run resolved the tag to
+		Blowdryer.forgetTags((url, attributes) -> url.equals(hashRequestUrl));
 		Bitbucket spy = spy(setupBitbucketTestTarget(GitAnchorType.TAG)).authToken("un:pw");
 		doReturn(hash).when(spy).getCommitHashFromBitbucket(hashRequestUrl);
 		final ResourcePlugin target = getResourcePlugin();
@@ -95,6 +111,33 @@ public class BlowdryerTest {
 		assertThat(target.toImmutableUrl("test.properties")).isEqualTo(expected);
 	}
 
+	@Test
+	public void bitbucketCloud_tagResolvedOncePerMachine() throws Exception {
+		final String hashRequestUrl = "https://api.bitbucket.org/2.0/repositories/testOrg/testRepo/refs/tags/testAnchor";
+		final String hash = UUID.randomUUID().toString();
+		final String expected = "https://api.bitbucket.org/2.0/repositories/testOrg/testRepo/src/" + hash + "/src/main/resources/test.properties";
+		Blowdryer.forgetTags((url, attributes) -> url.equals(hashRequestUrl));
+		Blowdryer.setResourcePluginNull();
+
+		Bitbucket first = spy(setupBitbucketTestTarget(GitAnchorType.TAG)).authToken("un:pw");
+		doReturn(hash).when(first).getCommitHashFromBitbucket(hashRequestUrl);
+		assertThat(getResourcePlugin().toImmutableUrl("test.properties")).isEqualTo(expected);
+		verify(first).getCommitHashFromBitbucket(hashRequestUrl);
+
+		// the next build, or another daemon, reuses the resolution from disk
+		Blowdryer.setResourcePluginNull();
+		Bitbucket second = spy(setupBitbucketTestTarget(GitAnchorType.TAG)).authToken("un:pw");
+		assertThat(getResourcePlugin().toImmutableUrl("test.properties")).isEqualTo(expected);
+		verify(second, never()).getCommitHashFromBitbucket(hashRequestUrl);
+
+		// until the tag is refreshed
+		assertThat(Blowdryer.forgetTags((url, attributes) -> "testOrg/testRepo".equals(attributes.get(CacheIndex.REPO)))).containsExactly(hashRequestUrl);
+		Blowdryer.setResourcePluginNull();
+		Bitbucket third = spy(setupBitbucketTestTarget(GitAnchorType.TAG)).authToken("un:pw");
+		doReturn("retagged").when(third).getCommitHashFromBitbucket(hashRequestUrl);
+		assertThat(getResourcePlugin().toImmutableUrl("test.properties")).contains("/src/retagged/");
+	}
+
 	@Test
 	public void bitbucketCloud_commitAnchorType() throws Exception {
 		final String expected = "https://api.bitbucket.org/2.0/repositories/testOrg/testRepo/src/testAnchor/src/main/resources/test.properties";
@@ -166,16 +209,12 @@ public class BlowdryerTest {
 		return new BlowdryerSetup(null).bitbucket(repoOrg, anchorType, anchor);
 	}
 
-	private ResourcePlugin getResourcePlugin() throws Exception {
-		final Field field = Blowdryer.class.getDeclaredField("plugin");
-		field.setAccessible(true);
-		return (ResourcePlugin) field.get(null);
+	private ResourcePlugin getResourcePlugin() {
+		return Blowdryer.current().plugin;
 	}
 
-	private AuthPlugin getAuthPlugin() throws Exception {
-		final Field field = Blowdryer.class.getDeclaredField("authPlugin");
-		field.setAccessible(true);
-		return (AuthPlugin) field.get(null);
+	private AuthPlugin getAuthPlugin() {
+		return Blowdryer.current().authPlugin;
 	}
 
 	private String randomUUID() {
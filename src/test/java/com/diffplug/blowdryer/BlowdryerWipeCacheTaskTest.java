@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.diffplug.common.base.StandardSystemProperty;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BlowdryerWipeCacheTaskTest {
+	@Rule
+	public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+	@Before
+	public void setup() {
+		Blowdryer.initTempDir(StandardSystemProperty.JAVA_IO_TMPDIR.value());
+	}
+
+	private String stub(String path, String content) {
+		wireMockRule.stubFor(WireMock.get(urlEqualTo(path))
+				.willReturn(aResponse().withStatus(200).withBody(content)));
+		return "http://localhost:" + wireMockRule.port() + path;
+	}
+
+	@Test
+	public void wipesOnlyMatchingUrls() {
+		String root = "/" + UUID.randomUUID();
+		String bad = stub(root + "/bad", "bad");
+		String good = stub(root + "/good", "good");
+		Blowdryer.immutableUrl(bad);
+		Blowdryer.immutableUrl(good);
+
+		String badPrefix = "http://localhost:" + wireMockRule.port() + root + "/bad";
+		assertThat(Blowdryer.wipeCache((url, attributes) -> url.startsWith(badPrefix), true)).containsExactly(bad);
+		Blowdryer.immutableUrl(bad);
+		verify(1, getRequestedFor(urlEqualTo(root + "/bad")));
+
+		assertThat(Blowdryer.wipeCache((url, attributes) -> url.startsWith(badPrefix), false)).containsExactly(bad);
+		assertThat(Blowdryer.immutableUrl(bad)).hasContent("bad");
+		assertThat(Blowdryer.immutableUrl(good)).hasContent("good");
+		verify(2, getRequestedFor(urlEqualTo(root + "/bad")));
+		verify(1, getRequestedFor(urlEqualTo(root + "/good")));
+	}
+}
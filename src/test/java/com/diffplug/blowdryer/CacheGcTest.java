@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class CacheGcTest extends ResourceHarness {
+	private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+	private File blob(String sha256, int size, long ageMs) throws IOException {
+		File blob = file("blobs/" + sha256);
+		blob.getParentFile().mkdirs();
+		Files.write(blob.toPath(), new byte[size]);
+		blob.setLastModified(System.currentTimeMillis() - ageMs);
+		return blob;
+	}
+
+	private CacheIndex index(String... urlAndSha) throws IOException {
+		CacheIndex index = new CacheIndex(file("index.bin"));
+		for (int i = 0; i < urlAndSha.length; i += 2) {
+			index.put(urlAndSha[i], Collections.singletonMap(CacheIndex.SHA256, urlAndSha[i + 1]));
+		}
+		return index;
+	}
+
+	@Test
+	public void evictsTooOld() throws IOException {
+		File old = blob("old", 10, 40 * DAY);
+		File recent = blob("recent", 10, 2 * DAY);
+		CacheIndex index = index("https://old", "old", "https://recent", "recent");
+
+		assertThat(new CacheGc(rootFolder(), index, CacheGc.UNLIMITED, CacheGc.DEFAULT_MAX_AGE_MS, sha -> false).collect())
+				.containsExactly("old");
+		assertThat(old).doesNotExist();
+		assertThat(recent).exists();
+		assertThat(new CacheIndex(file("index.bin")).get("https://old")).isNull();
+		assertThat(new CacheIndex(file("index.bin")).get("https://recent")).containsEntry(CacheIndex.SHA256, "recent");
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedUntilUnderBudget() throws IOException {
+		blob("a", 100, 5 * DAY);
+		blob("b", 100, 4 * DAY);
+		blob("c", 100, 3 * DAY);
+		blob("d", 100, 2 * DAY);
+		CacheIndex index = index("https://a", "a", "https://b", "b", "https://c", "c", "https://d", "d");
+
+		assertThat(new CacheGc(rootFolder(), index, 250, CacheGc.DEFAULT_MAX_AGE_MS, sha -> false).collect())
+				.containsExactlyInAnyOrder("a", "b");
+	}
+
+	@Test
+	public void deletionsBumpTheGeneration() throws IOException {
+		blob("old", 10, 40 * DAY);
+		blob("recent", 10, 2 * DAY);
+		CacheIndex index = index("https://old", "old", "https://recent", "recent");
+		ContentStore store = new ContentStore(rootFolder());
+		String before = store.generation();
+		assertThat(store.generation()).isEqualTo(before);
+
+		Set<String> deleted = new HashSet<>();
+		new CacheGc(rootFolder(), index, CacheGc.UNLIMITED, CacheGc.DEFAULT_MAX_AGE_MS, sha -> false, deleted::addAll).collect();
+		assertThat(deleted).containsExactly("old");
+		String after = store.generation();
+		assertThat(after).isNotEqualTo(before);
+
+		// nothing left to delete, so nothing changes
+		new CacheGc(rootFolder(), index, CacheGc.UNLIMITED, CacheGc.DEFAULT_MAX_AGE_MS, sha -> false, deleted::addAll).collect();
+		assertThat(store.generation()).isEqualTo(after);
+	}
+
+	@Test
+	public void trimsColdInflatedFiles() throws IOException {
+		blob("cold.gz", 10, 2 * DAY);
+		File coldInflated = file("files/cold/config.xml");
+		coldInflated.getParentFile().mkdirs();
+		Files.write(coldInflated.toPath(), new byte[100]);
+		coldInflated.setLastModified(System.currentTimeMillis() - 2 * DAY);
+		blob("warm.gz", 10, 2 * DAY);
+		File warmInflated = file("files/warm/config.xml");
+		warmInflated.getParentFile().mkdirs();
+		Files.write(warmInflated.toPath(), new byte[100]);
+		CacheIndex index = index("https://cold", "cold", "https://warm", "warm");
+
+		assertThat(new CacheGc(rootFolder(), index, CacheGc.UNLIMITED, CacheGc.DEFAULT_MAX_AGE_MS, sha -> false).collect()).isEmpty();
+		assertThat(coldInflated).doesNotExist();
+		assertThat(file("blobs/cold.gz")).exists();
+		assertThat(warmInflated).exists();
+	}
+
+	@Test
+	public void neverEvictsPinnedOrRecentlyUsed() throws IOException {
+		blob("pinned", 100, 40 * DAY);
+		blob("justUsed", 100, TimeUnit.MINUTES.toMillis(5));
+		blob("evictable", 100, 40 * DAY);
+		CacheIndex index = index("https://pinned", "pinned", "https://justUsed", "justUsed", "https://evictable", "evictable");
+
+		assertThat(new CacheGc(rootFolder(), index, 0, CacheGc.DEFAULT_MAX_AGE_MS, "pinned"::equals).collect())
+				.containsExactly("evictable");
+		assertThat(file("blobs/pinned")).exists();
+		assertThat(file("blobs/justUsed")).exists();
+	}
+}
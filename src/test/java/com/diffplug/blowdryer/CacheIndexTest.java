@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class CacheIndexTest extends ResourceHarness {
+	@Test
+	public void putGetRemove() throws IOException {
+		File file = file("index.bin");
+		CacheIndex index = new CacheIndex(file);
+		assertThat(index.get("https://a")).isNull();
+
+		index.put("https://a", Collections.singletonMap(CacheIndex.SHA256, "aaa"));
+		index.put("https://b", Collections.singletonMap(CacheIndex.SHA256, "bbb"));
+		index.put("https://a", Collections.singletonMap(CacheIndex.SHA256, "AAA"));
+		index.remove("https://b");
+		assertThat(index.get("https://a")).containsEntry(CacheIndex.SHA256, "AAA");
+		assertThat(index.get("https://b")).isNull();
+
+		// a fresh JVM sees the same thing
+		CacheIndex reloaded = new CacheIndex(file);
+		assertThat(reloaded.get("https://a")).containsEntry(CacheIndex.SHA256, "AAA");
+		assertThat(reloaded.get("https://b")).isNull();
+	}
+
+	@Test
+	public void seesAppendsFromOtherProcesses() throws IOException {
+		File file = file("index.bin");
+		CacheIndex ours = new CacheIndex(file);
+		CacheIndex theirs = new CacheIndex(file);
+		assertThat(ours.get("https://a")).isNull();
+
+		theirs.put("https://a", Collections.singletonMap(CacheIndex.SHA256, "aaa"));
+		assertThat(ours.get("https://a")).isNull();
+		ours.refresh();
+		assertThat(ours.get("https://a")).containsEntry(CacheIndex.SHA256, "aaa");
+	}
+
+	@Test
+	public void seesCompactionByOtherProcesses() throws IOException {
+		File file = file("index.bin");
+		CacheIndex ours = new CacheIndex(file);
+		CacheIndex theirs = new CacheIndex(file);
+		for (int i = 0; i < 10; ++i) {
+			theirs.put("https://a", Collections.singletonMap(CacheIndex.SHA256, "aaa" + i));
+		}
+		theirs.put("https://b", Collections.singletonMap(CacheIndex.SHA256, "bbb"));
+		assertThat(ours.get("https://a")).containsEntry(CacheIndex.SHA256, "aaa9");
+
+		// compaction renames a new file into place, which we re-read from the start
+		long before = file.length();
+		theirs.compact();
+		assertThat(file.length()).isLessThan(before);
+		ours.refresh();
+		assertThat(ours.get("https://a")).containsEntry(CacheIndex.SHA256, "aaa9");
+		assertThat(ours.get("https://b")).containsEntry(CacheIndex.SHA256, "bbb");
+	}
+
+	@Test
+	public void corruptAndPartialRecordsAreSkipped() throws IOException {
+		File file = file("index.bin");
+		CacheIndex writer = new CacheIndex(file);
+		writer.put("https://a", Collections.singletonMap(CacheIndex.SHA256, "aaa"));
+		int firstRecordEnd = (int) file.length();
+		writer.put("https://b", Collections.singletonMap(CacheIndex.SHA256, "bbb"));
+		writer.put("https://c", Collections.singletonMap(CacheIndex.SHA256, "ccc"));
+
+		// flip a byte in the payload of the second record
+		byte[] content = Files.readAllBytes(file.toPath());
+		content[firstRecordEnd + 16] ^= 0xFF;
+		// and leave half a record dangling at the end
+		byte[] partial = Arrays.copyOf(content, content.length + 7);
+		System.arraycopy(content, 0, partial, content.length, 7);
+		Files.write(file.toPath(), partial);
+
+		CacheIndex reader = new CacheIndex(file);
+		assertThat(reader.get("https://a")).containsEntry(CacheIndex.SHA256, "aaa");
+		assertThat(reader.get("https://b")).isNull();
+		assertThat(reader.get("https://c")).containsEntry(CacheIndex.SHA256, "ccc");
+
+		// records appended after the garbage are still found
+		writer.put("https://d", Collections.singletonMap(CacheIndex.SHA256, "ddd"));
+		reader.refresh();
+		assertThat(reader.get("https://d")).containsEntry(CacheIndex.SHA256, "ddd");
+	}
+
+	@Test
+	public void garbageFileIsIgnored() throws IOException {
+		File file = write("index.bin", "this is not an index");
+		CacheIndex index = new CacheIndex(file);
+		assertThat(index.get("https://a")).isNull();
+		index.put("https://a", Collections.singletonMap(CacheIndex.SHA256, "aaa"));
+		assertThat(new CacheIndex(file).get("https://a")).containsEntry(CacheIndex.SHA256, "aaa");
+		Files.write(file.toPath(), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+		assertThat(new CacheIndex(file).get("https://a")).containsEntry(CacheIndex.SHA256, "aaa");
+	}
+}
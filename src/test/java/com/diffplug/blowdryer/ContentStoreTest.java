@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class ContentStoreTest extends ResourceHarness {
+	private static String repeat(String line, int times) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < times; ++i) {
+			builder.append(line);
+		}
+		return builder.toString();
+	}
+
+	private File add(ContentStore store, String sha256, byte[] content) throws IOException {
+		File temp = store.newTempFile();
+		Files.write(temp.toPath(), content);
+		store.add(temp, sha256);
+		return temp;
+	}
+
+	@Test
+	public void bigTextIsCompressed() throws IOException {
+		ContentStore store = new ContentStore(rootFolder(), 1024);
+		String text = repeat("<module name=\"Checker\"/>\n", 1000);
+		add(store, "big", text.getBytes(StandardCharsets.UTF_8));
+		add(store, "small", "small".getBytes(StandardCharsets.UTF_8));
+
+		assertThat(store.compressedBlob("big")).exists();
+		assertThat(store.compressedBlob("big").length()).isLessThan(text.length() / 10);
+		assertThat(store.blob("big")).doesNotExist();
+		assertThat(store.contains("big")).isTrue();
+		assertThat(store.materialize("big", "checkstyle.xml")).hasContent(text);
+
+		assertThat(store.blob("small")).hasContent("small");
+		assertThat(store.compressedBlob("small")).doesNotExist();
+	}
+
+	@Test
+	public void binaryIsNotCompressed() throws IOException {
+		ContentStore store = new ContentStore(rootFolder(), 1024);
+		byte[] binary = new byte[4096];
+		Arrays.fill(binary, (byte) 7);
+		binary[100] = 0;
+		add(store, "binary", binary);
+
+		assertThat(store.blob("binary")).hasBinaryContent(binary);
+		assertThat(store.compressedBlob("binary")).doesNotExist();
+	}
+}
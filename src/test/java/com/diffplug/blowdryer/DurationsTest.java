@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+public class DurationsTest {
+	@Test
+	public void parse() {
+		assertThat(Durations.parse("30s")).isEqualTo(30_000L);
+		assertThat(Durations.parse("15m")).isEqualTo(15 * 60_000L);
+		assertThat(Durations.parse("12h")).isEqualTo(12 * 3_600_000L);
+		assertThat(Durations.parse("7d")).isEqualTo(7 * 86_400_000L);
+		assertThatThrownBy(() -> Durations.parse("a week"))
+				.hasMessageContaining("'a week'");
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.Test;
+
+public class HostRateLimiterTest {
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+	/** Wed, 21 Oct 2015 07:28:00 GMT */
+	private static final long NOW_MILLIS = 1445412480000L;
+
+	@Test
+	public void retryAfter() {
+		assertThat(HostRateLimiter.retryAfterMillis("2", NOW_MILLIS)).isEqualTo(2000);
+		assertThat(HostRateLimiter.retryAfterMillis("Wed, 21 Oct 2015 07:28:05 GMT", NOW_MILLIS)).isEqualTo(5000);
+		// in the past, missing, unparseable or huge
+		assertThat(HostRateLimiter.retryAfterMillis("Wed, 21 Oct 2015 07:27:00 GMT", NOW_MILLIS)).isEqualTo(HostRateLimiter.DEFAULT_RETRY_MS);
+		assertThat(HostRateLimiter.retryAfterMillis(null, NOW_MILLIS)).isEqualTo(HostRateLimiter.DEFAULT_RETRY_MS);
+		assertThat(HostRateLimiter.retryAfterMillis("soon", NOW_MILLIS)).isEqualTo(HostRateLimiter.DEFAULT_RETRY_MS);
+		assertThat(HostRateLimiter.retryAfterMillis("86400", NOW_MILLIS)).isEqualTo(HostRateLimiter.MAX_WAIT_MS);
+	}
+
+	@Test
+	public void unlimitedUntilNearTheLimit() {
+		HostRateLimiter limiter = new HostRateLimiter();
+		for (int i = 0; i < 100; ++i) {
+			assertThat(limiter.reserve(0)).isEqualTo(0);
+		}
+		// plenty left, GitHub style
+		limiter.observe(0, NOW_MILLIS, headers("X-RateLimit-Limit", "5000", "X-RateLimit-Remaining", "4000", "X-RateLimit-Reset", "1445416080"));
+		for (int i = 0; i < 100; ++i) {
+			assertThat(limiter.reserve(0)).isEqualTo(0);
+		}
+		// 10 left for the next 10 seconds, GitLab style, so after the burst it's one per second
+		limiter.observe(0, NOW_MILLIS, headers("RateLimit-Limit", "600", "RateLimit-Remaining", "10", "RateLimit-Reset", "1445412490"));
+		for (int i = 0; i < 8; ++i) {
+			assertThat(limiter.reserve(0)).isEqualTo(0);
+		}
+		assertThat(limiter.reserve(0)).isEqualTo(SECOND);
+		assertThat(limiter.reserve(0)).isEqualTo(2 * SECOND);
+		// and tokens come back over time
+		assertThat(limiter.reserve(10 * SECOND)).isEqualTo(0);
+	}
+
+	@Test
+	public void spentBlocksUntilReset() {
+		HostRateLimiter limiter = new HostRateLimiter();
+		limiter.observe(0, NOW_MILLIS, headers("X-RateLimit-Remaining", "0", "X-RateLimit-Reset", "30"));
+		assertThat(limiter.reserve(0)).isGreaterThanOrEqualTo(30 * SECOND);
+	}
+
+	@Test
+	public void retryAfterBlocksEveryRequest() {
+		HostRateLimiter limiter = new HostRateLimiter();
+		limiter.blockFor(0, 2000);
+		assertThat(limiter.reserve(0)).isEqualTo(2 * SECOND);
+		assertThat(limiter.reserve(SECOND)).isEqualTo(SECOND);
+		assertThat(limiter.reserve(2 * SECOND)).isEqualTo(0);
+	}
+
+	private static Function<String, String> headers(String... keyValues) {
+		Map<String, String> headers = new HashMap<>();
+		for (int i = 0; i < keyValues.length; i += 2) {
+			headers.put(keyValues[i], keyValues[i + 1]);
+		}
+		return headers::get;
+	}
+}
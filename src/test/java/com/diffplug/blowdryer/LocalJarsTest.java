@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.diffplug.common.io.ByteStreams;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class LocalJarsTest extends ResourceHarness {
+	private static byte[] jar(String name, String content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+			zip.putNextEntry(new ZipEntry(name));
+			zip.write(content.getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+		return bytes.toByteArray();
+	}
+
+	private static String readEntry(ZipFile jar, String name) throws IOException {
+		return new String(ByteStreams.toByteArray(jar.getInputStream(jar.getEntry(name))), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void replacedJarStaysOpenForItsReaders() throws IOException {
+		// Windows won't replace an open jar, and LocalJars doesn't keep them open there
+		Assume.assumeFalse(System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win"));
+		File jarFile = write("resources.jar", jar("a.txt", "old"));
+		String stillReading = LocalJars.read(jarFile, oldJar -> {
+			// the jar is rebuilt while another thread is partway through reading it
+			File rebuilt = write("resources.jar.tmp", jar("a.txt", "new content"));
+			Files.move(rebuilt.toPath(), jarFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			assertThat(LocalJars.read(jarFile, newJar -> readEntry(newJar, "a.txt"))).isEqualTo("new content");
+			return readEntry(oldJar, "a.txt");
+		});
+		assertThat(stillReading).isEqualTo("old");
+	}
+}
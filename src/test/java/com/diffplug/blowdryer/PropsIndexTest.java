@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class PropsIndexTest extends ResourceHarness {
+	@Test
+	public void roundTrip() throws IOException {
+		File props = write("files/abc/versions.properties",
+				"guava=31.1",
+				"junit = 4.13.2",
+				"escaped\\ key=multi\\",
+				"  line",
+				"unicode=\\u5e72",
+				"empty=");
+		Map<String, String> index = PropsIndex.of(props);
+		assertThat(file("files/abc/" + PropsIndex.FILENAME)).exists();
+
+		Map<String, String> expected = new HashMap<>();
+		expected.put("guava", "31.1");
+		expected.put("junit", "4.13.2");
+		expected.put("escaped key", "multiline");
+		expected.put("unicode", "干");
+		expected.put("empty", "");
+		assertThat(index).isEqualTo(expected);
+		assertThat(index.get("missing")).isNull();
+		assertThat(index.containsKey("empty")).isTrue();
+		assertThatThrownBy(() -> index.put("guava", "0")).isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	public void manyKeys() throws IOException {
+		String[] lines = new String[1000];
+		for (int i = 0; i < lines.length; ++i) {
+			lines[i] = "key" + i + "=value" + i;
+		}
+		Map<String, String> index = PropsIndex.of(write("files/abc/big.properties", lines));
+		assertThat(index).hasSize(1000);
+		for (int i = 0; i < lines.length; ++i) {
+			assertThat(index.get("key" + i)).isEqualTo("value" + i);
+		}
+		assertThat(index.get("key1000")).isNull();
+	}
+
+	@Test
+	public void empty() throws IOException {
+		Map<String, String> index = PropsIndex.of(write("files/abc/empty.properties", ""));
+		assertThat(index).isEmpty();
+		assertThat(index.get("anything")).isNull();
+	}
+
+	@Test
+	public void reusesCompiledIndex() throws IOException {
+		File props = write("files/abc/versions.properties", "guava=31.1");
+		PropsIndex.of(props);
+		// another JVM only needs the compiled index, not the text
+		Files.write(props.toPath(), "guava=this is never parsed".getBytes());
+		assertThat(PropsIndex.of(props)).containsEntry("guava", "31.1");
+	}
+
+	@Test
+	public void corruptIndexIsRecompiled() throws IOException {
+		File props = write("files/abc/versions.properties", "guava=31.1");
+		write("files/abc/" + PropsIndex.FILENAME, "garbage");
+		assertThat(PropsIndex.of(props)).containsEntry("guava", "31.1");
+		assertThat(PropsIndex.of(props)).containsEntry("guava", "31.1");
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.diffplug.common.base.StandardSystemProperty;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ResolutionMetricsTest extends ResourceHarness {
+	@Rule
+	public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+	@Before
+	public void setup() {
+		Blowdryer.initTempDir(StandardSystemProperty.JAVA_IO_TMPDIR.value());
+	}
+
+	@After
+	public void cleanup() {
+		Blowdryer.setResourcePluginNull();
+	}
+
+	@Test
+	public void countsEveryResolutionAndWritesReport() throws IOException {
+		BuildState build = new BuildState();
+		build.reportFile = file(BlowdryerSetupPlugin.REPORT_PATH);
+		Blowdryer.buildStarted(rootFolder(), build, null);
+
+		String repo = UUID.randomUUID().toString();
+		String root = "http://localhost:" + wireMockRule.port() + "/" + repo + "/";
+		Blowdryer.setResourcePlugin(resource -> root + resource, null, repo, "v1");
+		wireMockRule.stubFor(WireMock.get(urlEqualTo("/" + repo + "/a.properties"))
+				.willReturn(aResponse().withStatus(200).withBody("key=value")));
+
+		List<String> events = new CopyOnWriteArrayList<>();
+		Blowdryer.addListener(new BlowdryerListener() {
+			@Override
+			public void resolved(String url, Source source, long nanos) {
+				events.add(source + " " + url);
+			}
+
+			@Override
+			public void downloaded(String url, long bytes, long nanos) {
+				events.add("downloaded " + bytes);
+			}
+		});
+		Blowdryer.file("a.properties");
+		Blowdryer.file("a.properties");
+		assertThat(Blowdryer.prop("a", "key")).isEqualTo("value");
+		assertThat(events).containsExactly(
+				"downloaded 9",
+				"DOWNLOAD " + root + "a.properties",
+				"MEMORY " + root + "a.properties",
+				"MEMORY " + root + "a.properties");
+
+		Blowdryer.buildFinished(build);
+		JsonObject report = JsonParser.parseString(new String(Files.readAllBytes(build.reportFile.toPath()), StandardCharsets.UTF_8)).getAsJsonObject();
+		assertThat(report.get("downloads").getAsLong()).isEqualTo(1);
+		assertThat(report.get("memoryHits").getAsLong()).isEqualTo(2);
+		assertThat(report.get("diskHits").getAsLong()).isEqualTo(0);
+		assertThat(report.get("downloadedBytes").getAsLong()).isEqualTo(9);
+		assertThat(report.get("propLookups").getAsLong()).isEqualTo(1);
+		assertThat(report.getAsJsonArray("slowest")).hasSize(1);
+		assertThat(report.getAsJsonArray("slowest").get(0).getAsJsonObject().get("url").getAsString()).isEqualTo(root + "a.properties");
+	}
+
+	@Test
+	public void listenerWhichThrowsDoesNotFailTheBuild() throws IOException {
+		BuildState build = new BuildState();
+		Blowdryer.buildStarted(rootFolder(), build, null);
+
+		String repo = UUID.randomUUID().toString();
+		String root = "http://localhost:" + wireMockRule.port() + "/" + repo + "/";
+		Blowdryer.setResourcePlugin(resource -> root + resource, null, repo, "v1");
+		wireMockRule.stubFor(WireMock.get(urlEqualTo("/" + repo + "/a.properties"))
+				.willReturn(aResponse().withStatus(200).withBody("key=value\nother=thing")));
+
+		List<String> loaded = new CopyOnWriteArrayList<>();
+		Blowdryer.addListener(new BlowdryerListener() {
+			@Override
+			public void resolved(String url, Source source, long nanos) {
+				throw new IllegalStateException("broken listener");
+			}
+
+			@Override
+			public void propsLoaded(String propFile) {
+				loaded.add(propFile);
+			}
+		});
+		assertThat(Blowdryer.prop("a", "key")).isEqualTo("value");
+		assertThat(Blowdryer.prop("a", "key")).isEqualTo("value");
+		assertThat(Blowdryer.prop("a", "other")).isEqualTo("thing");
+		// one event per file, not per lookup
+		assertThat(loaded).containsExactly("a");
+		assertThat(build.metrics.propLookups.sum()).isEqualTo(3);
+		Blowdryer.buildFinished(build);
+	}
+
+	@Test
+	public void nothingResolvedKeepsPreviousReport() throws IOException {
+		File reportFile = write(BlowdryerSetupPlugin.REPORT_PATH, "previous");
+		BuildState build = new BuildState();
+		build.reportFile = reportFile;
+		Blowdryer.buildStarted(rootFolder(), build, null);
+		Blowdryer.buildFinished(build);
+		assertThat(reportFile).hasContent("previous");
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import okhttp3.OkHttpClient;
+import org.junit.Test;
+
+public class SharedHttpClientTest {
+	@Test
+	public void sharedAcrossCalls() {
+		assertThat(SharedHttpClient.get()).isSameAs(SharedHttpClient.get());
+	}
+
+	@Test
+	public void newTimeoutsKeepTheConnectionPool() {
+		OkHttpClient before = SharedHttpClient.get();
+		OkHttpClient after = SharedHttpClient.get(3, 7);
+		assertThat(after).isSameAs(SharedHttpClient.get(3, 7));
+		assertThat(before.connectTimeoutMillis()).isEqualTo(SharedHttpClient.DEFAULT_CONNECT_TIMEOUT_SECONDS * 1_000);
+		assertThat(after.connectTimeoutMillis()).isEqualTo(3_000);
+		assertThat(after.readTimeoutMillis()).isEqualTo(7_000);
+		assertThat(after.connectionPool()).isSameAs(before.connectionPool());
+		assertThat(after.dispatcher()).isSameAs(before.dispatcher());
+	}
+}
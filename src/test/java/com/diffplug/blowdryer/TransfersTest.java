@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2026 DiffPlug
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.diffplug.blowdryer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import okio.ByteString;
+import org.junit.Test;
+
+public class TransfersTest extends ResourceHarness {
+	@Test
+	public void small() throws IOException {
+		File dst = write("dst", "previous content which is longer");
+		String sha256 = Transfers.copyHashing(new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8)), dst);
+		assertThat(sha256).isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+		assertThat(dst).hasContent("abc");
+	}
+
+	@Test
+	public void empty() throws IOException {
+		File dst = file("dst");
+		String sha256 = Transfers.copyHashing(new ByteArrayInputStream(new byte[0]), dst);
+		assertThat(sha256).isEqualTo("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+		assertThat(dst).hasBinaryContent(new byte[0]);
+	}
+
+	@Test
+	public void spansManyChunks() throws IOException {
+		byte[] content = new byte[3 * 1024 * 1024 + 17];
+		new Random(0).nextBytes(content);
+		File dst = file("dst");
+		String sha256 = Transfers.copyHashing(new ByteArrayInputStream(content), dst);
+		assertThat(sha256).isEqualTo(ByteString.of(content).sha256().hex());
+		assertThat(dst).hasBinaryContent(content);
+	}
+}